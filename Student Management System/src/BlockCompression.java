@@ -0,0 +1,338 @@
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.*;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Block compression for student data files
+ * A compressed file is a magic header followed by Deflate blocks that each hold whole lines,
+ * so every block can be decompressed on its own (in parallel, or on demand by an offset index)
+ *
+ * Block layout: rawLength (int), compressedLength (int), CRC32 of raw bytes (int), compressed bytes
+ * The header itself is not checksummed, so lengths beyond what a writer can produce mark a damaged block
+ */
+public class BlockCompression {
+    public static final int NONE = -1;
+    public static final int DEFAULT_LEVEL = 6;
+    public static final int DEFAULT_BLOCK_SIZE = 64 * 1024;
+    private static final byte[] MAGIC = {'S', 'M', 'S', 'Z'};
+    private static final int BLOCK_HEADER_SIZE = 12;
+    // Blocks are cut at the first line end past the block size, so real blocks stay far below this
+    static final int MAX_BLOCK_LENGTH = 16 * 1024 * 1024;
+
+    private BlockCompression() {
+    }
+
+    /**
+     * One compressed block and where its compressed bytes live in the file
+     */
+    public static class Block {
+        private final long offset;
+        private final int rawLength;
+        private final int compressedLength;
+        private final int crc;
+
+        Block(long offset, int rawLength, int compressedLength, int crc) {
+            this.offset = offset;
+            this.rawLength = rawLength;
+            this.compressedLength = compressedLength;
+            this.crc = crc;
+        }
+
+        public long getOffset() {
+            return offset;
+        }
+
+        public int getRawLength() {
+            return rawLength;
+        }
+
+        public int getCompressedLength() {
+            return compressedLength;
+        }
+
+        long end() {
+            return offset + compressedLength;
+        }
+    }
+
+    /**
+     * Validate a Deflate level, allowing NONE to switch compression off
+     */
+    public static void checkLevel(int level) {
+        if (level != NONE && (level < Deflater.NO_COMPRESSION || level > Deflater.BEST_COMPRESSION)) {
+            throw new IllegalArgumentException("Compression level must be -1 (off) or between 0 and 9");
+        }
+    }
+
+    /**
+     * Check whether a file starts with the compressed file header
+     */
+    public static boolean isCompressed(Path path) throws IOException {
+        if (!Files.exists(path) || Files.size(path) < MAGIC.length) {
+            return false;
+        }
+        try (InputStream in = Files.newInputStream(path)) {
+            byte[] header = new byte[MAGIC.length];
+            return in.read(header) == MAGIC.length && Arrays.equals(header, MAGIC);
+        }
+    }
+
+    /**
+     * Read the block headers of a compressed file without decompressing anything
+     * A trailing block cut short by a torn write, or a block whose header holds impossible lengths, ends the
+     * index like a partial block; compare getEnd() with the file size to detect it
+     */
+    public static List<Block> readIndex(FileChannel channel) throws IOException {
+        List<Block> blocks = new ArrayList<>();
+        long size = channel.size();
+        long position = MAGIC.length;
+        ByteBuffer header = ByteBuffer.allocate(BLOCK_HEADER_SIZE);
+        while (position + BLOCK_HEADER_SIZE <= size) {
+            header.clear();
+            readFully(channel, header, position);
+            header.flip();
+            int rawLength = header.getInt();
+            int compressedLength = header.getInt();
+            int crc = header.getInt();
+            if (rawLength < 0 || rawLength > MAX_BLOCK_LENGTH
+                    || compressedLength < 0 || compressedLength > maxCompressedLength(rawLength)) {
+                break;
+            }
+
+            Block block = new Block(position + BLOCK_HEADER_SIZE, rawLength, compressedLength, crc);
+            if (block.end() > size) {
+                break;
+            }
+            blocks.add(block);
+            position = block.end();
+        }
+        return blocks;
+    }
+
+    /**
+     * Upper bound on the Deflate output for rawLength input bytes, with room to spare
+     * (stored blocks add only a few bytes per 16-64 KB)
+     */
+    private static long maxCompressedLength(int rawLength) {
+        return rawLength + rawLength / 8 + 64L;
+    }
+
+    /**
+     * Byte position just past the last complete block
+     */
+    public static long getEnd(List<Block> blocks) {
+        return blocks.isEmpty() ? MAGIC.length : blocks.get(blocks.size() - 1).end();
+    }
+
+    /**
+     * Decompress one block and verify its checksum
+     */
+    public static byte[] readBlock(FileChannel channel, Block block) throws IOException {
+        ByteBuffer compressed = ByteBuffer.allocate(block.compressedLength);
+        readFully(channel, compressed, block.offset);
+
+        byte[] raw = new byte[block.rawLength];
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(compressed.array());
+            int length = 0;
+            while (length < raw.length && !inflater.finished()) {
+                int inflated = inflater.inflate(raw, length, raw.length - length);
+                if (inflated == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    break;
+                }
+                length += inflated;
+            }
+            if (length != raw.length) {
+                throw new IOException("Compressed block is truncated");
+            }
+        } catch (DataFormatException e) {
+            throw new IOException("Compressed block is corrupted: " + e.getMessage());
+        } finally {
+            inflater.end();
+        }
+
+        CRC32 crc = new CRC32();
+        crc.update(raw);
+        if ((int) crc.getValue() != block.crc) {
+            throw new IOException("Compressed block checksum mismatch");
+        }
+        return raw;
+    }
+
+    /**
+     * Open a stream that decompresses the blocks of a compressed file one after another
+     */
+    public static InputStream openInputStream(Path path) throws IOException {
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+        List<Block> blocks;
+        try {
+            blocks = readIndex(channel);
+            if (getEnd(blocks) != channel.size()) {
+                System.err.println("Compressed file " + path + " ends with a partial block.");
+            }
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+
+        return new InputStream() {
+            private int nextBlock;
+            private ByteArrayInputStream current = new ByteArrayInputStream(new byte[0]);
+
+            private boolean advance() throws IOException {
+                while (current.available() == 0) {
+                    if (nextBlock >= blocks.size()) {
+                        return false;
+                    }
+                    current = new ByteArrayInputStream(readBlock(channel, blocks.get(nextBlock++)));
+                }
+                return true;
+            }
+
+            @Override
+            public int read() throws IOException {
+                return advance() ? current.read() : -1;
+            }
+
+            @Override
+            public int read(byte[] bytes, int offset, int length) throws IOException {
+                if (length == 0) {
+                    return 0;
+                }
+                return advance() ? current.read(bytes, offset, length) : -1;
+            }
+
+            @Override
+            public void close() throws IOException {
+                channel.close();
+            }
+        };
+    }
+
+    private static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                throw new EOFException("Unexpected end of compressed file");
+            }
+        }
+    }
+
+    /**
+     * Output stream that compresses written text into independent blocks, cutting only at line ends
+     */
+    public static class BlockOutputStream extends OutputStream {
+        private final OutputStream out;
+        private final Deflater deflater;
+        private final int blockSize;
+        private final ByteArrayOutputStream buffer;
+        private byte[] compressBuffer = new byte[0];
+        private boolean finished;
+
+        public BlockOutputStream(OutputStream out, int level) throws IOException {
+            this(out, level, DEFAULT_BLOCK_SIZE);
+        }
+
+        public BlockOutputStream(OutputStream out, int level, int blockSize) throws IOException {
+            checkLevel(level);
+            if (level == NONE) {
+                throw new IllegalArgumentException("Compression level must be between 0 and 9");
+            }
+            if (blockSize <= 0 || blockSize > MAX_BLOCK_LENGTH / 2) {
+                throw new IllegalArgumentException("Block size must be between 1 and " + MAX_BLOCK_LENGTH / 2 + " bytes");
+            }
+            this.out = out;
+            this.deflater = new Deflater(level);
+            this.blockSize = blockSize;
+            this.buffer = new ByteArrayOutputStream(blockSize + 1024);
+            out.write(MAGIC);
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            buffer.write(b);
+            if (b == '\n' && buffer.size() >= blockSize) {
+                writeBlock();
+            }
+        }
+
+        @Override
+        public void write(byte[] bytes, int offset, int length) throws IOException {
+            int end = offset + length;
+            while (offset < end) {
+                // Copy up to and including the next line end, then cut a block if it is full
+                int lineEnd = offset;
+                while (lineEnd < end && bytes[lineEnd] != '\n') {
+                    lineEnd++;
+                }
+                int chunkEnd = Math.min(lineEnd + 1, end);
+                buffer.write(bytes, offset, chunkEnd - offset);
+                if (lineEnd < end && buffer.size() >= blockSize) {
+                    writeBlock();
+                }
+                offset = chunkEnd;
+            }
+        }
+
+        private void writeBlock() throws IOException {
+            if (buffer.size() == 0) {
+                return;
+            }
+
+            if (buffer.size() > MAX_BLOCK_LENGTH) {
+                // Readers would reject the block as damaged
+                throw new IOException("Line too long for a compressed block (" + buffer.size() + " bytes)");
+            }
+            byte[] raw = buffer.toByteArray();
+            buffer.reset();
+            CRC32 crc = new CRC32();
+            crc.update(raw);
+
+            deflater.reset();
+            deflater.setInput(raw);
+            deflater.finish();
+            if (compressBuffer.length < raw.length + 64) {
+                compressBuffer = new byte[raw.length + raw.length / 8 + 64];
+            }
+            int compressedLength = 0;
+            while (!deflater.finished()) {
+                if (compressedLength == compressBuffer.length) {
+                    compressBuffer = Arrays.copyOf(compressBuffer, compressBuffer.length * 2);
+                }
+                compressedLength += deflater.deflate(compressBuffer, compressedLength, compressBuffer.length - compressedLength);
+            }
+
+            DataOutputStream header = new DataOutputStream(out);
+            header.writeInt(raw.length);
+            header.writeInt(compressedLength);
+            header.writeInt((int) crc.getValue());
+            out.write(compressBuffer, 0, compressedLength);
+        }
+
+        /**
+         * Write the last partial block and flush, leaving the underlying stream open
+         */
+        public void finish() throws IOException {
+            if (!finished) {
+                writeBlock();
+                out.flush();
+                deflater.end();
+                finished = true;
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            finish();
+            out.close();
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,642 @@
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+import java.util.function.Consumer;
+
+/**
+ * Disk-resident repository for large student archives
+ * Keeps only an ID-to-offset index in memory and loads records on access through a bounded cache
+ */
+public class DiskStudentRepository implements Closeable {
+    private static final String FILE_NAME = "students.txt";
+    private static final String BACKUP_FILE_NAME = "students_backup.txt";
+    private static final int DEFAULT_CACHE_SIZE = 1024;
+    private final Path filePath;
+    private final Path backupPath;
+    private final StudentCache cache;
+    private final Map<String, RecordLocation> index;
+    private FileChannel channel;
+    private DurabilityLevel durability = DurabilityLevel.FSYNC;
+    private int compressionLevel = BlockCompression.NONE;
+    // Block headers of a compressed data file, or null for plain text
+    private List<BlockCompression.Block> blocks;
+    private Integrity integrity = new Integrity();
+    // Set while a torn data file is in place, so it never replaces a good backup
+    private boolean dataFileTorn;
+
+    public DiskStudentRepository() {
+        this(Paths.get(FILE_NAME), Paths.get(BACKUP_FILE_NAME), DEFAULT_CACHE_SIZE);
+    }
+
+    public DiskStudentRepository(Path filePath, Path backupPath, int cacheSize) {
+        this.filePath = filePath;
+        this.backupPath = backupPath;
+        this.cache = new StudentCache(cacheSize);
+        this.index = new LinkedHashMap<>();
+        buildIndex();
+    }
+
+    /**
+     * Byte range of a single record line in the data file, or within a compressed block
+     */
+    private static class RecordLocation {
+        final int block;
+        final long offset;
+        final int length;
+
+        RecordLocation(int block, long offset, int length) {
+            this.block = block;
+            this.offset = offset;
+            this.length = length;
+        }
+    }
+
+    /**
+     * What indexing found about the file's integrity, checked the same way as StudentDataFile.Contents
+     */
+    private static class Integrity {
+        boolean checksummed;
+        int records;
+        int trailerCount = -1;
+        int corruptRecords;
+        boolean partialBlock;
+        final Set<Integer> damagedBlocks = new HashSet<>();
+
+        /**
+         * False if a checksummed file is missing its trailer, has the wrong record count,
+         * contains records that fail their checksum or has unreadable blocks
+         */
+        boolean isIntact() {
+            if (!checksummed) {
+                return true;
+            }
+            return !partialBlock && damagedBlocks.isEmpty() && trailerCount == records && corruptRecords == 0;
+        }
+    }
+
+    /**
+     * Scan the data file once and record the offset of every valid line
+     */
+    private void buildIndex() {
+        if (!Files.exists(filePath)) {
+            System.err.println("No existing data file found. Starting with empty database.");
+            return;
+        }
+
+        try {
+            indexFile(filePath);
+            if (!integrity.isIntact()) {
+                recover();
+            }
+            System.err.println("Indexed " + index.size() + " students from file"
+                    + (blocks == null ? "." : " (" + blocks.size() + " compressed blocks)."));
+        } catch (IOException e) {
+            System.err.println("Error reading file: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Recover from a torn data file, preferring an intact backup over the records that survived
+     */
+    private void recover() throws IOException {
+        System.err.println("Data file is incomplete or corrupted (" + integrity.corruptRecords + " bad records).");
+        dataFileTorn = true;
+
+        if (Files.exists(backupPath)) {
+            try {
+                indexFile(backupPath);
+                if (integrity.isIntact()) {
+                    // Put the backup back in place; its bytes are copied as-is, so the index stays valid
+                    Path tempPath = filePath.resolveSibling(filePath.getFileName() + ".tmp");
+                    StudentDataFile.backup(backupPath, tempPath, durability);
+                    StudentDataFile.replace(tempPath, filePath, durability);
+                    channel.close();
+                    channel = FileChannel.open(filePath, StandardOpenOption.READ);
+                    dataFileTorn = false;
+                    System.err.println("Recovered " + index.size() + " students from backup.");
+                    return;
+                }
+                System.err.println("Backup file is also damaged.");
+            } catch (IOException e) {
+                System.err.println("Error reading backup file: " + e.getMessage());
+            }
+        }
+
+        indexFile(filePath);
+        System.err.println("Keeping " + index.size() + " intact records from the data file.");
+        rewrite(null, null, null);
+    }
+
+    private void indexFile(Path path) throws IOException {
+        index.clear();
+        integrity = new Integrity();
+        if (channel != null) {
+            channel.close();
+        }
+        channel = FileChannel.open(path, StandardOpenOption.READ);
+
+        if (!BlockCompression.isCompressed(path)) {
+            blocks = null;
+            try (InputStream in = new BufferedInputStream(Files.newInputStream(path))) {
+                forEachLine(in, -1, 0, this::indexLine);
+            }
+            return;
+        }
+
+        // Keep compressed archives compressed when they are rewritten
+        if (compressionLevel == BlockCompression.NONE) {
+            compressionLevel = BlockCompression.DEFAULT_LEVEL;
+        }
+        integrity.checksummed = true; // Compressed files are always written with checksums
+        blocks = BlockCompression.readIndex(channel);
+        if (BlockCompression.getEnd(blocks) != channel.size()) {
+            System.err.println("Compressed data file ends with a partial block.");
+            integrity.partialBlock = true;
+        }
+        int lineNumber = 0;
+        for (int i = 0; i < blocks.size(); i++) {
+            byte[] raw;
+            try {
+                raw = BlockCompression.readBlock(channel, blocks.get(i));
+            } catch (IOException e) {
+                // Index the blocks that can be read; the file is treated as torn
+                System.err.println("Error reading block " + i + ": " + e.getMessage());
+                integrity.damagedBlocks.add(i);
+                continue;
+            }
+            lineNumber = forEachLine(new ByteArrayInputStream(raw), i, lineNumber, this::indexLine);
+        }
+    }
+
+    /**
+     * Receives one line of the data file and where it is
+     */
+    private interface LineHandler {
+        void accept(byte[] bytes, int block, long offset, int lineNumber);
+    }
+
+    /**
+     * Pass every line of a stream to the handler; offsets are relative to the start of the stream
+     *
+     * @return the last line number used
+     */
+    private static int forEachLine(InputStream in, int block, int lineNumber, LineHandler handler) throws IOException {
+        ByteArrayOutputStream lineBuffer = new ByteArrayOutputStream(128);
+        long lineStart = 0;
+        long position = 0;
+        int b;
+        while (true) {
+            b = in.read();
+            if (b == '\n' || b == -1) {
+                if (b == -1 && lineBuffer.size() == 0) {
+                    break;
+                }
+                lineNumber++;
+                handler.accept(lineBuffer.toByteArray(), block, lineStart, lineNumber);
+                lineBuffer.reset();
+                position++;
+                lineStart = position;
+                if (b == -1) {
+                    break;
+                }
+                continue;
+            }
+            lineBuffer.write(b);
+            position++;
+        }
+        return lineNumber;
+    }
+
+    private void indexLine(byte[] bytes, int block, long offset, int lineNumber) {
+        String line = new String(bytes, StandardCharsets.UTF_8).trim();
+        if (line.isEmpty()) {
+            return;
+        }
+        if (line.startsWith("#")) {
+            indexComment(line);
+            return;
+        }
+        if (integrity.trailerCount >= 0) {
+            // Data after the trailer means the file was not written by a single save
+            integrity.corruptRecords++;
+            return;
+        }
+
+        integrity.checksummed |= StudentDataFile.isChecksummed(line);
+        try {
+            Student student = StudentDataFile.parseRecord(line);
+            index.put(key(student.getId()), new RecordLocation(block, offset, bytes.length));
+            integrity.records++;
+        } catch (IllegalArgumentException e) {
+            if (integrity.checksummed) {
+                integrity.corruptRecords++;
+            }
+            System.err.println("Error parsing line " + lineNumber + ": " + e.getMessage());
+        }
+    }
+
+    private void indexComment(String line) {
+        if (line.equals(StudentDataFile.CHECKSUM_FORMAT)) {
+            integrity.checksummed = true;
+        } else if (line.startsWith(StudentDataFile.TRAILER_PREFIX)) {
+            try {
+                integrity.trailerCount = StudentDataFile.trailerCount(line);
+            } catch (NumberFormatException e) {
+                System.err.println("Invalid data file comment: " + line);
+            }
+        }
+    }
+
+    /**
+     * Read a single record from disk at its indexed location
+     */
+    private Student readRecord(RecordLocation location) throws IOException {
+        if (location.block >= 0) {
+            // Only the block holding the record is decompressed
+            byte[] raw = BlockCompression.readBlock(channel, blocks.get(location.block));
+            return StudentDataFile.parseRecord(new String(raw, (int) location.offset, location.length, StandardCharsets.UTF_8));
+        }
+
+        ByteBuffer buffer = ByteBuffer.allocate(location.length);
+        long position = location.offset;
+        while (buffer.hasRemaining()) {
+            int read = channel.read(buffer, position + buffer.position());
+            if (read < 0) {
+                throw new EOFException("Unexpected end of data file");
+            }
+        }
+        return StudentDataFile.parseRecord(new String(buffer.array(), StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Stream every indexed record in file order without holding them all in memory
+     * Only the line the index points to is passed on, so earlier duplicates of an ID (the last one
+     * wins, as in StudentRepository), records after the trailer and damaged blocks are skipped
+     *
+     * @throws IOException if the file cannot be read to the end (e.g. a compressed block fails its checksum)
+     */
+    private void forEachStudent(Consumer<Student> action) throws IOException {
+        if (!Files.exists(filePath)) {
+            return;
+        }
+
+        LineHandler indexed = (bytes, block, offset, lineNumber) -> {
+            String line = new String(bytes, StandardCharsets.UTF_8).trim();
+            if (line.isEmpty() || line.startsWith("#")) {
+                return;
+            }
+            Student student;
+            try {
+                student = StudentDataFile.parseRecord(line);
+            } catch (IllegalArgumentException e) {
+                return; // Already reported while indexing
+            }
+            RecordLocation location = index.get(key(student.getId()));
+            if (location != null && location.block == block && location.offset == offset) {
+                action.accept(student);
+            }
+        };
+
+        if (blocks == null) {
+            try (InputStream in = new BufferedInputStream(Files.newInputStream(filePath))) {
+                forEachLine(in, -1, 0, indexed);
+            }
+            return;
+        }
+        for (int i = 0; i < blocks.size(); i++) {
+            if (integrity.damagedBlocks.contains(i)) {
+                continue;
+            }
+            byte[] raw = BlockCompression.readBlock(channel, blocks.get(i));
+            forEachLine(new ByteArrayInputStream(raw), i, 0, indexed);
+        }
+    }
+
+    /**
+     * forEachStudent for read-only queries, which report a read failure and return what was read
+     */
+    private void scanStudents(Consumer<Student> action) {
+        try {
+            forEachStudent(action);
+        } catch (IOException e) {
+            System.err.println("Error reading file: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Rewrite the data file with one record replaced, removed or appended
+     * Records are streamed from the old file, so memory use stays independent of file size
+     */
+    private boolean rewrite(String targetKey, Student replacement, Student appended) {
+        Path tempPath = filePath.resolveSibling(filePath.getFileName() + ".tmp");
+        Map<String, RecordLocation> newIndex = new LinkedHashMap<>();
+        boolean compressed = compressionLevel != BlockCompression.NONE;
+
+        try {
+            try (FileChannel tempChannel = FileChannel.open(tempPath,
+                    StandardOpenOption.CREATE,
+                    StandardOpenOption.WRITE,
+                    StandardOpenOption.TRUNCATE_EXISTING)) {
+                OutputStream fileOut = new BufferedOutputStream(Channels.newOutputStream(tempChannel));
+                BlockCompression.BlockOutputStream blockOut = compressed
+                        ? new BlockCompression.BlockOutputStream(fileOut, compressionLevel)
+                        : null;
+                OutputStream out = compressed ? blockOut : fileOut;
+                long[] position = {0};
+                writeLine(out, position, StudentDataFile.HEADER);
+                writeLine(out, position, StudentDataFile.CHECKSUM_FORMAT);
+                writeLine(out, position, "# Last updated: " + new Date());
+
+                // A read failure here aborts the rewrite, so a damaged file never replaces the backup
+                IOException[] failure = new IOException[1];
+                forEachStudent(student -> {
+                    if (failure[0] != null) {
+                        return;
+                    }
+                    String studentKey = key(student.getId());
+                    if (studentKey.equals(targetKey)) {
+                        student = replacement;
+                        if (student == null) {
+                            return; // Deleted
+                        }
+                    }
+                    try {
+                        newIndex.put(key(student.getId()), writeRecord(out, position, student));
+                    } catch (IOException e) {
+                        failure[0] = e;
+                    }
+                });
+                if (failure[0] != null) {
+                    throw failure[0];
+                }
+
+                if (appended != null) {
+                    newIndex.put(key(appended.getId()), writeRecord(out, position, appended));
+                }
+                writeLine(out, position, StudentDataFile.TRAILER_PREFIX + newIndex.size() + " records");
+                out.flush();
+                if (blockOut != null) {
+                    blockOut.finish();
+                }
+                if (durability == DurabilityLevel.FSYNC) {
+                    tempChannel.force(true);
+                }
+            }
+
+            // Create backup if file exists (but never overwrite a good backup with a torn file)
+            if (channel != null) {
+                channel.close();
+                channel = null;
+            }
+            if (Files.exists(filePath) && !dataFileTorn) {
+                StudentDataFile.backup(filePath, backupPath, durability);
+            }
+            StudentDataFile.replace(tempPath, filePath, durability);
+            dataFileTorn = false;
+
+            if (compressed) {
+                // Block boundaries are only known once written, so index the new file
+                indexFile(filePath);
+            } else {
+                integrity = new Integrity();
+                blocks = null;
+                index.clear();
+                index.putAll(newIndex);
+            }
+            return true;
+        } catch (IOException e) {
+            System.err.println("Error saving to file: " + e.getMessage());
+            try {
+                Files.deleteIfExists(tempPath);
+            } catch (IOException deleteError) {
+                System.err.println("Error removing temp file: " + deleteError.getMessage());
+            }
+            return false;
+        } finally {
+            try {
+                if (channel == null && Files.exists(filePath)) {
+                    channel = FileChannel.open(filePath, StandardOpenOption.READ);
+                }
+            } catch (IOException e) {
+                System.err.println("Error reopening file: " + e.getMessage());
+            }
+        }
+    }
+
+    private RecordLocation writeRecord(OutputStream out, long[] position, Student student) throws IOException {
+        long offset = position[0];
+        int length = writeLine(out, position, StudentDataFile.seal(student));
+        return new RecordLocation(-1, offset, length);
+    }
+
+    private int writeLine(OutputStream out, long[] position, String line) throws IOException {
+        byte[] bytes = line.getBytes(StandardCharsets.UTF_8);
+        out.write(bytes);
+        out.write('\n');
+        position[0] += bytes.length + 1;
+        return bytes.length;
+    }
+
+    private static String key(String id) {
+        return id.trim().toLowerCase();
+    }
+
+    /**
+     * Add a new student
+     */
+    public synchronized boolean addStudent(Student student) {
+        if (student == null) {
+            throw new IllegalArgumentException("Student cannot be null");
+        }
+
+        // Check for duplicate ID
+        if (index.containsKey(key(student.getId()))) {
+            throw new IllegalArgumentException("Student with ID " + student.getId() + " already exists");
+        }
+
+        boolean saved = rewrite(null, null, student);
+        if (saved) {
+            cache.put(key(student.getId()), student);
+        }
+        return saved;
+    }
+
+    /**
+     * Delete student by ID
+     */
+    public synchronized boolean deleteStudent(String id) {
+        if (id == null || id.trim().isEmpty()) {
+            throw new IllegalArgumentException("Student ID cannot be empty");
+        }
+
+        String key = key(id);
+        if (!index.containsKey(key)) {
+            return false;
+        }
+        cache.invalidate(key);
+        return rewrite(key, null, null);
+    }
+
+    /**
+     * Update student information
+     */
+    public synchronized boolean updateStudent(String id, Student updatedStudent) {
+        if (id == null || id.trim().isEmpty()) {
+            throw new IllegalArgumentException("Student ID cannot be empty");
+        }
+        if (updatedStudent == null) {
+            throw new IllegalArgumentException("Updated student data cannot be null");
+        }
+
+        String key = key(id);
+        if (!index.containsKey(key)) {
+            return false;
+        }
+        String newKey = key(updatedStudent.getId());
+        if (!newKey.equals(key) && index.containsKey(newKey)) {
+            throw new IllegalArgumentException("Student with ID " + updatedStudent.getId() + " already exists");
+        }
+        cache.invalidate(key);
+        boolean saved = rewrite(key, updatedStudent, null);
+        if (saved) {
+            cache.put(key(updatedStudent.getId()), updatedStudent);
+        }
+        return saved;
+    }
+
+    /**
+     * Find student by ID, loading it from disk on a cache miss
+     */
+    public synchronized Student findById(String id) {
+        if (id == null || id.trim().isEmpty()) {
+            return null;
+        }
+
+        String key = key(id);
+        Student cached = cache.get(key);
+        if (cached != null) {
+            return cached;
+        }
+
+        RecordLocation location = index.get(key);
+        if (location == null || channel == null) {
+            return null;
+        }
+
+        try {
+            Student student = readRecord(location);
+            cache.put(key, student);
+            return student;
+        } catch (IOException | IllegalArgumentException e) {
+            System.err.println("Error reading student " + id + ": " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Search students by name (partial match) with a sequential scan of the file
+     */
+    public synchronized List<Student> searchByName(String name) {
+        if (name == null || name.trim().isEmpty()) {
+            return new ArrayList<>();
+        }
+
+        String searchTerm = name.trim().toLowerCase();
+        List<Student> matches = new ArrayList<>();
+        scanStudents(s -> {
+            if (s.getName().toLowerCase().contains(searchTerm)) {
+                matches.add(s);
+            }
+        });
+        return matches;
+    }
+
+    /**
+     * Get all students (materializes the whole file)
+     */
+    public synchronized List<Student> getAllStudents() {
+        List<Student> all = new ArrayList<>(index.size());
+        scanStudents(all::add);
+        return all;
+    }
+
+    /**
+     * Sort students by name (A-Z)
+     */
+    public synchronized List<Student> getSortedByName() {
+        List<Student> sorted = getAllStudents();
+        Collections.sort(sorted);
+        return sorted;
+    }
+
+    /**
+     * Sort students by average grade (highest first)
+     */
+    public synchronized List<Student> getSortedByGrade() {
+        List<Student> sorted = getAllStudents();
+        sorted.sort((s1, s2) -> Double.compare(s2.getAverageGrade(), s1.getAverageGrade()));
+        return sorted;
+    }
+
+    /**
+     * Get total number of students
+     */
+    public synchronized int getStudentCount() {
+        return index.size();
+    }
+
+    /**
+     * Calculate average grade across all students with a sequential scan of the file
+     */
+    public synchronized double getAverageGrade() {
+        if (index.isEmpty()) {
+            return 0.0;
+        }
+        double[] total = {0.0};
+        int[] count = {0};
+        scanStudents(s -> {
+            total[0] += s.getAverageGrade();
+            count[0]++;
+        });
+        return count[0] == 0 ? 0.0 : total[0] / count[0];
+    }
+
+    /**
+     * Set how carefully later rewrites are forced to disk
+     * Rewrites always go through a checksummed temp file and an atomic rename
+     */
+    public synchronized void setDurability(DurabilityLevel durability) {
+        if (durability == null) {
+            throw new IllegalArgumentException("Durability level cannot be null");
+        }
+        this.durability = durability;
+    }
+
+    /**
+     * Set the Deflate level (0-9) for later rewrites, or BlockCompression.NONE for plain text
+     */
+    public synchronized void setCompression(int compressionLevel) {
+        BlockCompression.checkLevel(compressionLevel);
+        this.compressionLevel = compressionLevel;
+    }
+
+    /**
+     * Get cache hit/miss/eviction metrics
+     */
+    public StudentCache getCache() {
+        return cache;
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if (channel != null) {
+            channel.close();
+            channel = null;
+        }
+        cache.clear();
+    }
+}
\ No newline at end of file
@@ -0,0 +1,65 @@
+import java.io.IOException;
+import java.nio.file.*;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Durability Benchmark
+ * Measures the cost of saving the data file at each durability level
+ *
+ * Usage: java DurabilityBenchmark [studentCount] [saves] [directory]
+ */
+public class DurabilityBenchmark {
+    private static final int WARMUP_SAVES = 5;
+
+    public static void main(String[] args) throws IOException {
+        int studentCount = args.length > 0 ? Integer.parseInt(args[0]) : 10_000;
+        int saves = args.length > 1 ? Integer.parseInt(args[1]) : 20;
+        Path directory = args.length > 2 ? Paths.get(args[2]) : Files.createTempDirectory("student-durability");
+
+        List<Student> students = new ArrayList<>(studentCount);
+        for (int i = 0; i < studentCount; i++) {
+            double grade = 60 + (i % 40);
+            students.add(new Student("STU-" + i, "Student " + i, "student" + i + "@example.com",
+                    grade, grade, grade));
+        }
+
+        System.out.printf("Saving %d students %d times per level in %s%n", studentCount, saves, directory);
+        System.out.printf("%-8s %12s %12s %12s%n", "Level", "ms/save", "saves/s", "MB/s");
+
+        Path filePath = directory.resolve("benchmark.txt");
+        Path backupPath = directory.resolve("benchmark_backup.txt");
+        for (DurabilityLevel level : DurabilityLevel.values()) {
+            for (int i = 0; i < WARMUP_SAVES; i++) {
+                save(filePath, backupPath, students, level);
+            }
+
+            long start = System.nanoTime();
+            for (int i = 0; i < saves; i++) {
+                save(filePath, backupPath, students, level);
+            }
+            double seconds = (System.nanoTime() - start) / 1e9;
+            double megabytes = Files.size(filePath) * (double) saves / (1024 * 1024);
+
+            System.out.printf("%-8s %12.2f %12.1f %12.1f%n",
+                    level, seconds * 1000 / saves, saves / seconds, megabytes / seconds);
+        }
+
+        Files.deleteIfExists(filePath);
+        Files.deleteIfExists(backupPath);
+        if (args.length <= 2) {
+            Files.deleteIfExists(directory);
+        }
+    }
+
+    /**
+     * One save as StudentRepository does it: backup the current file, then write the new one
+     */
+    private static void save(Path filePath, Path backupPath, List<Student> students, DurabilityLevel level)
+            throws IOException {
+        if (Files.exists(filePath)) {
+            StudentDataFile.backup(filePath, backupPath, level);
+        }
+        StudentDataFile.write(filePath, students, 0, level);
+    }
+}
\ No newline at end of file
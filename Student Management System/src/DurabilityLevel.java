@@ -0,0 +1,22 @@
+/**
+ * How carefully data files are written to disk
+ * Higher levels trade save throughput for safety against crashes and power loss
+ */
+public enum DurabilityLevel {
+    /**
+     * Truncate and rewrite the file in place with no checksums (a crash can leave a partial file)
+     */
+    NONE,
+
+    /**
+     * Write a checksummed temp file and atomically rename it over the data file
+     * Survives process crashes; recent saves may be lost on power failure
+     */
+    ATOMIC,
+
+    /**
+     * Like ATOMIC, but force the temp file, backup and directory to disk before returning
+     * Survives power failure at the cost of waiting for the disk on every save
+     */
+    FSYNC
+}
\ No newline at end of file
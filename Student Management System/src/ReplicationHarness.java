@@ -0,0 +1,135 @@
+import java.io.IOException;
+import java.nio.file.*;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Replication Harness
+ * Runs a primary and several replicas on localhost in one JVM and checks that they converge,
+ * including a replica restart that catches up from its snapshot and log offset
+ *
+ * Usage: java ReplicationHarness [replicaCount] [studentCount]
+ */
+public class ReplicationHarness {
+    private static final long TIMEOUT_MILLIS = 10_000;
+
+    public static void main(String[] args) throws Exception {
+        int replicaCount = args.length > 0 ? Integer.parseInt(args[0]) : 3;
+        int studentCount = args.length > 1 ? Integer.parseInt(args[1]) : 200;
+
+        Path directory = Files.createTempDirectory("student-replication");
+        boolean passed;
+        try {
+            passed = run(directory, replicaCount, studentCount);
+        } finally {
+            deleteRecursively(directory);
+        }
+
+        System.out.println(passed ? "Replication harness PASSED" : "Replication harness FAILED");
+        if (!passed) {
+            System.exit(1);
+        }
+    }
+
+    private static boolean run(Path directory, int replicaCount, int studentCount) throws Exception {
+        StudentRepository primary = new StudentRepository(directory.resolve("primary.txt"), directory.resolve("primary_backup.txt"));
+        StudentChangeFeed feed = primary.openChangeFeed(directory.resolve("primary_changes.log"));
+
+        // Data written before replication starts reaches replicas through the initial snapshot
+        for (int i = 0; i < studentCount / 2; i++) {
+            primary.addStudent(newStudent(i, 75));
+        }
+
+        try (ReplicationPrimary server = new ReplicationPrimary(primary, 0)) {
+            List<StudentReplica> replicas = new ArrayList<>();
+            for (int i = 0; i < replicaCount; i++) {
+                replicas.add(new StudentReplica("localhost", server.getPort(), directory.resolve("replica-" + i + ".txt")));
+            }
+
+            // Live changes stream to the connected replicas
+            long start = System.nanoTime();
+            for (int i = studentCount / 2; i < studentCount; i++) {
+                primary.addStudent(newStudent(i, 80));
+            }
+            for (int i = 0; i < studentCount; i += 3) {
+                primary.updateStudent("STU-" + i, newStudent(i, 95));
+            }
+            for (int i = 1; i < studentCount; i += 10) {
+                primary.deleteStudent("STU-" + i);
+            }
+
+            boolean passed = true;
+            for (int i = 0; i < replicas.size(); i++) {
+                passed &= check("replica-" + i, primary, replicas.get(i), feed.getLastSequence());
+            }
+            System.out.printf("Replicated %d changes to %d replicas in %.1f ms%n",
+                    feed.getLastSequence(), replicaCount, (System.nanoTime() - start) / 1_000_000.0);
+
+            // Restart one replica while the primary keeps changing
+            StudentReplica restarted = replicas.get(0);
+            long offsetBeforeRestart = restarted.getLastSequence();
+            restarted.close();
+            for (int i = 0; i < studentCount; i += 7) {
+                primary.updateStudent("STU-" + i, newStudent(i, 60));
+            }
+            restarted = new StudentReplica("localhost", server.getPort(), directory.resolve("replica-0.txt"));
+            replicas.set(0, restarted);
+            System.out.println("Restarted replica-0 from offset #" + offsetBeforeRestart);
+            passed &= check("replica-0 after restart", primary, restarted, feed.getLastSequence());
+
+            for (StudentReplica replica : replicas) {
+                replica.close();
+            }
+            return passed;
+        } finally {
+            feed.close();
+        }
+    }
+
+    private static Student newStudent(int number, double grade) {
+        return new Student("STU-" + number, "Student " + number, "student" + number + "@example.com",
+                grade, grade, grade);
+    }
+
+    /**
+     * Wait for a replica to reach the primary's sequence and compare their contents
+     */
+    private static boolean check(String name, StudentRepository primary, StudentReplica replica, long sequence)
+            throws InterruptedException {
+        if (!replica.awaitSequence(sequence, TIMEOUT_MILLIS)) {
+            System.out.println(name + ": timed out at #" + replica.getLastSequence() + " waiting for #" + sequence);
+            return false;
+        }
+
+        List<String> expected = toFileFormat(primary.getAllStudents());
+        List<String> actual = toFileFormat(replica.getAllStudents());
+        boolean matches = expected.equals(actual)
+                && Math.abs(primary.getAverageGrade() - replica.getAverageGrade()) < 1e-9;
+        System.out.println(name + ": " + (matches ? "in sync" : "DIVERGED") + " at #" + sequence
+                + " with " + replica.getStudentCount() + " students");
+        return matches;
+    }
+
+    private static List<String> toFileFormat(List<Student> students) {
+        List<String> lines = new ArrayList<>();
+        for (Student student : students) {
+            lines.add(student.toFileFormat());
+        }
+        lines.sort(Comparator.naturalOrder());
+        return lines;
+    }
+
+    private static void deleteRecursively(Path directory) throws IOException {
+        try (Stream<Path> paths = Files.walk(directory)) {
+            paths.sorted(Comparator.reverseOrder()).forEach(path -> {
+                try {
+                    Files.delete(path);
+                } catch (IOException e) {
+                    System.err.println("Could not delete " + path + ": " + e.getMessage());
+                }
+            });
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,182 @@
+import java.io.*;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Flow;
+
+/**
+ * Primary side of student store replication
+ * Ships the repository's change log to read-only replicas over a local socket
+ *
+ * Protocol (UTF-8 lines): the replica sends "SYNC <lastSequence>". If the log cannot
+ * continue from there, the primary answers "SNAPSHOT <sequence>", one student per line
+ * in file format and "END". Change events in log format follow and keep streaming.
+ */
+public class ReplicationPrimary implements Closeable {
+    static final String SYNC = "SYNC";
+    static final String SNAPSHOT = "SNAPSHOT";
+    static final String END = "END";
+    private final StudentRepository repository;
+    private final StudentChangeFeed changeFeed;
+    private final ServerSocket serverSocket;
+    private final Set<Socket> connections;
+    private volatile boolean closed;
+
+    /**
+     * Start serving replicas on a loopback port (0 picks a free port)
+     */
+    public ReplicationPrimary(StudentRepository repository, int port) throws IOException {
+        if (repository == null) {
+            throw new IllegalArgumentException("Repository cannot be null");
+        }
+        this.changeFeed = repository.getChangeFeed();
+        if (changeFeed == null) {
+            throw new IllegalStateException("Open the repository's change feed before starting replication");
+        }
+        this.repository = repository;
+        this.connections = ConcurrentHashMap.newKeySet();
+        this.serverSocket = new ServerSocket(port, 50, InetAddress.getLoopbackAddress());
+
+        Thread acceptor = new Thread(this::acceptLoop, "replication-primary");
+        acceptor.setDaemon(true);
+        acceptor.start();
+    }
+
+    public int getPort() {
+        return serverSocket.getLocalPort();
+    }
+
+    private void acceptLoop() {
+        while (!closed) {
+            try {
+                Socket socket = serverSocket.accept();
+                connections.add(socket);
+                Thread handler = new Thread(() -> serve(socket), "replication-primary-" + socket.getPort());
+                handler.setDaemon(true);
+                handler.start();
+            } catch (IOException e) {
+                if (!closed) {
+                    System.err.println("Error accepting replica: " + e.getMessage());
+                }
+            }
+        }
+    }
+
+    /**
+     * Bring one replica up to date, then stream live changes to it until it disconnects
+     */
+    private void serve(Socket socket) {
+        try {
+            BufferedReader reader = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+            BufferedWriter writer = new BufferedWriter(new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8));
+
+            String request = reader.readLine();
+            if (request == null || !request.startsWith(SYNC + " ")) {
+                throw new IOException("Invalid replica handshake: " + request);
+            }
+            long replicaSequence = Long.parseLong(request.substring(SYNC.length() + 1).trim());
+
+            long fromSequence;
+            if (needsSnapshot(replicaSequence)) {
+                List<Student> snapshot;
+                long snapshotSequence;
+                // Mutations publish while holding the repository lock, so this pair is consistent
+                synchronized (repository) {
+                    snapshot = repository.getAllStudents();
+                    snapshotSequence = changeFeed.getLastSequence();
+                }
+                writer.write(SNAPSHOT + " " + snapshotSequence + "\n");
+                for (Student student : snapshot) {
+                    writer.write(student.toFileFormat());
+                    writer.write('\n');
+                }
+                writer.write(END + "\n");
+                writer.flush();
+                fromSequence = snapshotSequence + 1;
+            } else {
+                fromSequence = replicaSequence + 1;
+            }
+
+            changeFeed.subscribe(new ReplicaStream(socket, writer), fromSequence);
+        } catch (IOException | NumberFormatException e) {
+            if (!closed) {
+                System.err.println("Error syncing replica: " + e.getMessage());
+            }
+            closeQuietly(socket);
+        }
+    }
+
+    private boolean needsSnapshot(long replicaSequence) {
+        long first = changeFeed.getFirstSequence();
+        long last = changeFeed.getLastSequence();
+        return replicaSequence <= 0
+                || replicaSequence > last
+                || (first > 0 && replicaSequence < first - 1);
+    }
+
+    private void closeQuietly(Socket socket) {
+        connections.remove(socket);
+        try {
+            socket.close();
+        } catch (IOException e) {
+            // Already closed
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        closed = true;
+        serverSocket.close();
+        for (Socket socket : connections) {
+            closeQuietly(socket);
+        }
+    }
+
+    /**
+     * Writes change events to one replica, requesting the next event only after the previous one was sent
+     */
+    private class ReplicaStream implements Flow.Subscriber<StudentChangeEvent> {
+        private final Socket socket;
+        private final BufferedWriter writer;
+        private Flow.Subscription subscription;
+
+        ReplicaStream(Socket socket, BufferedWriter writer) {
+            this.socket = socket;
+            this.writer = writer;
+        }
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+            this.subscription = subscription;
+            subscription.request(1);
+        }
+
+        @Override
+        public void onNext(StudentChangeEvent event) {
+            try {
+                writer.write(event.toLogFormat());
+                writer.write('\n');
+                writer.flush();
+                subscription.request(1);
+            } catch (IOException e) {
+                subscription.cancel();
+                closeQuietly(socket);
+            }
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            System.err.println("Error reading change log for replica: " + throwable.getMessage());
+            closeQuietly(socket);
+        }
+
+        @Override
+        public void onComplete() {
+            closeQuietly(socket);
+        }
+    }
+}
\ No newline at end of file
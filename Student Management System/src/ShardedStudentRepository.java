@@ -0,0 +1,366 @@
+import java.io.Closeable;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.function.Function;
+
+/**
+ * Repository that partitions students across several data files by a hash of the ID
+ * Each shard is a StudentRepository with its own lock, index and file, so a mutation
+ * rewrites only one shard while global queries scatter/gather across shards in parallel
+ */
+public class ShardedStudentRepository implements Closeable {
+    private static final String FILE_PREFIX = "students";
+    private static final String BACKUP_FILE_PREFIX = "students_backup";
+    private static final int DEFAULT_SHARD_COUNT = 4;
+    private final List<StudentRepository> shards;
+    private final ExecutorService executor;
+
+    public ShardedStudentRepository() {
+        this(Paths.get("."), DEFAULT_SHARD_COUNT);
+    }
+
+    /**
+     * Open (or create) shards named students.shard-N.txt in the given directory
+     * The shard count must stay the same for a given data set, since it decides where each ID lives
+     *
+     * @throws IllegalArgumentException if the shard files were written with a different shard count
+     */
+    public ShardedStudentRepository(Path directory, int shardCount) {
+        if (shardCount <= 0) {
+            throw new IllegalArgumentException("Shard count must be greater than 0");
+        }
+
+        this.executor = Executors.newFixedThreadPool(
+                Math.min(shardCount, Runtime.getRuntime().availableProcessors()),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "student-shard-worker");
+                    thread.setDaemon(true);
+                    return thread;
+                });
+
+        // Load all shards in parallel
+        List<Callable<StudentRepository>> loaders = new ArrayList<>();
+        for (int i = 0; i < shardCount; i++) {
+            Path filePath = directory.resolve(FILE_PREFIX + ".shard-" + i + ".txt");
+            Path backupPath = directory.resolve(BACKUP_FILE_PREFIX + ".shard-" + i + ".txt");
+            loaders.add(() -> new StudentRepository(filePath, backupPath));
+        }
+        this.shards = Collections.unmodifiableList(invokeAll(loaders));
+        try {
+            checkShardCount(directory);
+        } catch (RuntimeException e) {
+            executor.shutdown();
+            throw e;
+        }
+    }
+
+    /**
+     * Fail if any loaded ID lives in a shard other than its own, or a shard file lies beyond the
+     * shard count; either means the data set was written with a different shard count
+     */
+    private void checkShardCount(Path directory) {
+        Path extra = directory.resolve(FILE_PREFIX + ".shard-" + shards.size() + ".txt");
+        if (Files.exists(extra)) {
+            throw new IllegalArgumentException("Found " + extra.getFileName() + " beyond the " + shards.size()
+                    + " shards; the data set was written with a different shard count");
+        }
+
+        List<Callable<String>> checks = new ArrayList<>(shards.size());
+        for (int i = 0; i < shards.size(); i++) {
+            int shard = i;
+            checks.add(() -> {
+                for (Student student : shards.get(shard).getAllStudents()) {
+                    if (shardIndex(student.getId()) != shard) {
+                        return "Student " + student.getId() + " is in shard " + shard + " but belongs in shard "
+                                + shardIndex(student.getId()) + "; the data set was written with a different shard count";
+                    }
+                }
+                return null;
+            });
+        }
+        for (String misplaced : invokeAll(checks)) {
+            if (misplaced != null) {
+                throw new IllegalArgumentException(misplaced);
+            }
+        }
+    }
+
+    /**
+     * Index of the shard owning an ID (IDs are case-insensitive, so hash the lower-case form;
+     * Locale.ROOT keeps the routing the same under every default locale)
+     */
+    private int shardIndex(String id) {
+        return Math.floorMod(id.trim().toLowerCase(Locale.ROOT).hashCode(), shards.size());
+    }
+
+    /**
+     * Pick the shard owning an ID
+     */
+    private StudentRepository shardFor(String id) {
+        return shards.get(shardIndex(id));
+    }
+
+    /**
+     * Run a task against every shard in parallel and collect the results in shard order
+     */
+    private <T> List<T> scatter(Function<StudentRepository, T> task) {
+        List<Callable<T>> calls = new ArrayList<>(shards.size());
+        for (StudentRepository shard : shards) {
+            calls.add(() -> task.apply(shard));
+        }
+        return invokeAll(calls);
+    }
+
+    private <T> List<T> invokeAll(List<Callable<T>> calls) {
+        try {
+            List<T> results = new ArrayList<>(calls.size());
+            for (Future<T> future : executor.invokeAll(calls)) {
+                results.add(future.get());
+            }
+            return results;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while querying shards", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new IllegalStateException("Shard operation failed: " + cause.getMessage(), cause);
+        }
+    }
+
+    /**
+     * Merge per-shard sorted lists into one sorted list
+     */
+    private static List<Student> merge(List<List<Student>> sortedShards, Comparator<Student> comparator) {
+        int total = 0;
+        for (List<Student> list : sortedShards) {
+            total += list.size();
+        }
+
+        // Heap entries are {shard, position}
+        PriorityQueue<int[]> heap = new PriorityQueue<>(Math.max(1, sortedShards.size()),
+                (a, b) -> comparator.compare(sortedShards.get(a[0]).get(a[1]), sortedShards.get(b[0]).get(b[1])));
+        for (int i = 0; i < sortedShards.size(); i++) {
+            if (!sortedShards.get(i).isEmpty()) {
+                heap.add(new int[]{i, 0});
+            }
+        }
+
+        List<Student> merged = new ArrayList<>(total);
+        while (!heap.isEmpty()) {
+            int[] head = heap.poll();
+            List<Student> list = sortedShards.get(head[0]);
+            merged.add(list.get(head[1]));
+            if (head[1] + 1 < list.size()) {
+                heap.add(new int[]{head[0], head[1] + 1});
+            }
+        }
+        return merged;
+    }
+
+    /**
+     * Save all shards to file in parallel
+     */
+    public boolean saveToFile() {
+        boolean saved = true;
+        for (boolean result : scatter(StudentRepository::saveToFile)) {
+            saved &= result;
+        }
+        return saved;
+    }
+
+    /**
+     * Set how carefully later saves are written to disk in every shard
+     */
+    public void setDurability(DurabilityLevel durability) {
+        for (StudentRepository shard : shards) {
+            shard.setDurability(durability);
+        }
+    }
+
+    /**
+     * Set the Deflate level (0-9) for later saves in every shard, or BlockCompression.NONE for plain text
+     */
+    public void setCompression(int compressionLevel) {
+        for (StudentRepository shard : shards) {
+            shard.setCompression(compressionLevel);
+        }
+    }
+
+    /**
+     * Add a new student (only the owning shard is rewritten)
+     */
+    public boolean addStudent(Student student) {
+        if (student == null) {
+            throw new IllegalArgumentException("Student cannot be null");
+        }
+        return shardFor(student.getId()).addStudent(student);
+    }
+
+    /**
+     * Delete student by ID
+     */
+    public boolean deleteStudent(String id) {
+        if (id == null || id.trim().isEmpty()) {
+            throw new IllegalArgumentException("Student ID cannot be empty");
+        }
+        return shardFor(id).deleteStudent(id);
+    }
+
+    /**
+     * Update student information
+     */
+    public boolean updateStudent(String id, Student updatedStudent) {
+        if (id == null || id.trim().isEmpty()) {
+            throw new IllegalArgumentException("Student ID cannot be empty");
+        }
+        if (updatedStudent == null) {
+            throw new IllegalArgumentException("Updated student data cannot be null");
+        }
+        // Reject every rename, not only those that cross shards, so the rule does not depend on the hash
+        if (!id.trim().equalsIgnoreCase(updatedStudent.getId().trim())) {
+            throw new IllegalArgumentException("Student ID cannot be changed in a sharded repository");
+        }
+        return shardFor(id).updateStudent(id, updatedStudent);
+    }
+
+    /**
+     * Find student by ID
+     */
+    public Student findById(String id) {
+        if (id == null || id.trim().isEmpty()) {
+            return null;
+        }
+        return shardFor(id).findById(id);
+    }
+
+    /**
+     * Search students by name (partial match) across all shards
+     */
+    public List<Student> searchByName(String name) {
+        if (name == null || name.trim().isEmpty()) {
+            return new ArrayList<>();
+        }
+
+        List<Student> matches = new ArrayList<>();
+        for (List<Student> shardMatches : scatter(shard -> shard.searchByName(name))) {
+            matches.addAll(shardMatches);
+        }
+        return matches;
+    }
+
+    /**
+     * Get all students
+     */
+    public List<Student> getAllStudents() {
+        List<Student> all = new ArrayList<>();
+        for (List<Student> shardStudents : scatter(StudentRepository::getAllStudents)) {
+            all.addAll(shardStudents);
+        }
+        return all;
+    }
+
+    /**
+     * Sort students by name (A-Z)
+     */
+    public List<Student> getSortedByName() {
+        return merge(scatter(StudentRepository::getSortedByName), Comparator.naturalOrder());
+    }
+
+    /**
+     * Sort students by average grade (highest first)
+     */
+    public List<Student> getSortedByGrade() {
+        return merge(scatter(StudentRepository::getSortedByGrade), StudentRepository.BY_GRADE_DESC);
+    }
+
+    /**
+     * Get students as they were at the given time across all shards
+     */
+    public List<Student> asOf(long timestamp) {
+        List<Student> snapshot = new ArrayList<>();
+        for (List<Student> shardSnapshot : scatter(shard -> shard.asOf(timestamp))) {
+            snapshot.addAll(shardSnapshot);
+        }
+        return snapshot;
+    }
+
+    /**
+     * Get every retained version of a student, oldest first
+     */
+    public List<StudentVersion> getHistory(String id) {
+        if (id == null || id.trim().isEmpty()) {
+            return new ArrayList<>();
+        }
+        return shardFor(id).getHistory(id);
+    }
+
+    /**
+     * Get grade changes made within a time window across all shards, ordered by time
+     */
+    public List<StudentChangeEvent> getGradeChanges(long fromTimestamp, long toTimestamp) {
+        List<StudentChangeEvent> changes = new ArrayList<>();
+        for (List<StudentChangeEvent> shardChanges : scatter(shard -> shard.getGradeChanges(fromTimestamp, toTimestamp))) {
+            changes.addAll(shardChanges);
+        }
+        changes.sort(Comparator.comparingLong(StudentChangeEvent::getTimestamp));
+        return changes;
+    }
+
+    /**
+     * Drop history superseded before the horizon in all shards
+     */
+    public int compactHistory(long horizonTimestamp) {
+        int removed = 0;
+        for (int shardRemoved : scatter(shard -> shard.compactHistory(horizonTimestamp))) {
+            removed += shardRemoved;
+        }
+        return removed;
+    }
+
+    /**
+     * Get total number of students
+     */
+    public int getStudentCount() {
+        int count = 0;
+        for (int shardCount : scatter(StudentRepository::getStudentCount)) {
+            count += shardCount;
+        }
+        return count;
+    }
+
+    /**
+     * Calculate average grade across all students, weighting each shard by its size
+     */
+    public double getAverageGrade() {
+        // Each result is {count, average}, read under the shard's lock so both match
+        List<double[]> partials = scatter(shard -> {
+            synchronized (shard) {
+                return new double[]{shard.getStudentCount(), shard.getAverageGrade()};
+            }
+        });
+
+        double count = 0;
+        double total = 0;
+        for (double[] partial : partials) {
+            count += partial[0];
+            total += partial[0] * partial[1];
+        }
+        return count == 0 ? 0.0 : total / count;
+    }
+
+    /**
+     * Get number of shards
+     */
+    public int getShardCount() {
+        return shards.size();
+    }
+
+    @Override
+    public void close() {
+        executor.shutdown();
+    }
+}
\ No newline at end of file
@@ -1,5 +1,6 @@
 import java.io.Serializable;
 import java.util.Objects;
+import java.util.regex.Pattern;
 
 /**
  * Student Model Class
@@ -7,6 +8,9 @@ import java.util.Objects;
  */
 public class Student implements Serializable, Comparable<Student> {
     private static final long serialVersionUID = 1L;
+    // Compiled once; bulk loads validate every record
+    private static final Pattern ID_PATTERN = Pattern.compile("^[A-Za-z0-9-]+$");
+    private static final Pattern EMAIL_PATTERN = Pattern.compile("^[A-Za-z0-9+_.-]+@[A-Za-z0-9.-]+\\.[A-Za-z]{2,}$");
 
     private String id;
     private String name;
@@ -27,6 +31,18 @@ public class Student implements Serializable, Comparable<Student> {
         setFinalGrade(finalGrade);
     }
 
+    /**
+     * Copy constructor; the copy can be changed without affecting the original
+     */
+    public Student(Student other) {
+        this.id = other.id;
+        this.name = other.name;
+        this.email = other.email;
+        this.prelimGrade = other.prelimGrade;
+        this.midtermGrade = other.midtermGrade;
+        this.finalGrade = other.finalGrade;
+    }
+
     // Getters
     public String getId() {
         return id;
@@ -64,7 +80,7 @@ public class Student implements Serializable, Comparable<Student> {
         if (id == null || id.trim().isEmpty()) {
             throw new IllegalArgumentException("Student ID cannot be empty");
         }
-        if (!id.matches("^[A-Za-z0-9-]+$")) {
+        if (!ID_PATTERN.matcher(id).matches()) {
             throw new IllegalArgumentException("Student ID can only contain letters, numbers, and hyphens");
         }
         this.id = id.trim();
@@ -84,7 +100,7 @@ public class Student implements Serializable, Comparable<Student> {
         if (email == null || email.trim().isEmpty()) {
             throw new IllegalArgumentException("Email cannot be empty");
         }
-        if (!email.matches("^[A-Za-z0-9+_.-]+@[A-Za-z0-9.-]+\\.[A-Za-z]{2,}$")) {
+        if (!EMAIL_PATTERN.matcher(email).matches()) {
             throw new IllegalArgumentException("Invalid email format");
         }
         this.email = email.trim().toLowerCase();
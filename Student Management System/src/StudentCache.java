@@ -0,0 +1,100 @@
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Size-bounded LRU cache for student records
+ * Keeps recently accessed students in memory and tracks hit/miss/eviction metrics
+ */
+public class StudentCache {
+    private final int maxSize;
+    private final LinkedHashMap<String, Student> entries;
+    private long hitCount;
+    private long missCount;
+    private long evictionCount;
+
+    public StudentCache(int maxSize) {
+        if (maxSize <= 0) {
+            throw new IllegalArgumentException("Cache size must be greater than 0");
+        }
+        this.maxSize = maxSize;
+        // Access order makes the eldest entry the least recently used one
+        this.entries = new LinkedHashMap<String, Student>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Student> eldest) {
+                if (size() > StudentCache.this.maxSize) {
+                    evictionCount++;
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * Get a cached student, or null if not cached
+     */
+    public synchronized Student get(String key) {
+        Student student = entries.get(key);
+        if (student != null) {
+            hitCount++;
+        } else {
+            missCount++;
+        }
+        return student;
+    }
+
+    /**
+     * Put a student into the cache, evicting the least recently used entry if full
+     */
+    public synchronized void put(String key, Student student) {
+        entries.put(key, student);
+    }
+
+    /**
+     * Remove a student from the cache
+     */
+    public synchronized void invalidate(String key) {
+        entries.remove(key);
+    }
+
+    /**
+     * Remove all cached students
+     */
+    public synchronized void clear() {
+        entries.clear();
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    public synchronized long getHitCount() {
+        return hitCount;
+    }
+
+    public synchronized long getMissCount() {
+        return missCount;
+    }
+
+    public synchronized long getEvictionCount() {
+        return evictionCount;
+    }
+
+    /**
+     * Fraction of lookups served from the cache
+     */
+    public synchronized double getHitRate() {
+        long lookups = hitCount + missCount;
+        return lookups == 0 ? 0.0 : (double) hitCount / lookups;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return String.format("Cache: %d/%d entries | Hits: %d | Misses: %d | Evictions: %d | Hit Rate: %.2f%%",
+                entries.size(), maxSize, hitCount, missCount, evictionCount, getHitRate() * 100);
+    }
+}
\ No newline at end of file
@@ -0,0 +1,172 @@
+/**
+ * Change Event Class
+ * Represents a single sequence-numbered mutation of the repository with before and after images
+ */
+public class StudentChangeEvent {
+    private static final String NONE = "-";
+
+    public enum Type {
+        ADD, UPDATE, DELETE
+    }
+
+    private final long sequence;
+    private final long timestamp;
+    private final Type type;
+    private final String id;
+    private final Student before;
+    private final Student after;
+
+    public StudentChangeEvent(long sequence, long timestamp, Type type, String id, Student before, Student after) {
+        if (type == null) {
+            throw new IllegalArgumentException("Change type cannot be null");
+        }
+        if (id == null || id.trim().isEmpty()) {
+            throw new IllegalArgumentException("Student ID cannot be empty");
+        }
+        this.sequence = sequence;
+        this.timestamp = timestamp;
+        this.type = type;
+        this.id = id.trim();
+        this.before = before;
+        this.after = after;
+    }
+
+    // Getters
+    public long getSequence() {
+        return sequence;
+    }
+
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    /**
+     * Student before the change, or null for ADD
+     */
+    public Student getBefore() {
+        return before;
+    }
+
+    /**
+     * Student after the change, or null for DELETE
+     */
+    public Student getAfter() {
+        return after;
+    }
+
+    /**
+     * Convert event to change log format (tab-separated, student images in file format)
+     * Tabs, line breaks and backslashes inside fields are escaped so every event stays on one line
+     */
+    public String toLogFormat() {
+        return sequence + "\t" + timestamp + "\t" + type + "\t" + escape(id) + "\t" +
+                (before == null ? NONE : escape(before.toFileFormat())) + "\t" +
+                (after == null ? NONE : escape(after.toFileFormat()));
+    }
+
+    /**
+     * Create event from change log format
+     */
+    public static StudentChangeEvent fromLogFormat(String line) throws IllegalArgumentException {
+        if (line == null || line.trim().isEmpty()) {
+            throw new IllegalArgumentException("Invalid log line");
+        }
+
+        String[] parts = line.split("\t", -1);
+        if (parts.length != 6) {
+            throw new IllegalArgumentException("Invalid log format - expected 6 fields");
+        }
+
+        try {
+            return new StudentChangeEvent(
+                    Long.parseLong(parts[0]),
+                    Long.parseLong(parts[1]),
+                    Type.valueOf(parts[2]),
+                    unescape(parts[3]),
+                    NONE.equals(parts[4]) ? null : Student.fromFileFormat(unescape(parts[4])),
+                    NONE.equals(parts[5]) ? null : Student.fromFileFormat(unescape(parts[5]))
+            );
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid sequence or timestamp format");
+        }
+    }
+
+    /**
+     * Read only the sequence number of a change log line, checking its field count
+     * but without parsing the student images
+     */
+    static long sequenceOf(String line) throws IllegalArgumentException {
+        int fields = 1;
+        for (int i = 0; i < line.length(); i++) {
+            if (line.charAt(i) == '\t') {
+                fields++;
+            }
+        }
+        int tab = line.indexOf('\t');
+        if (fields != 6 || tab <= 0) {
+            throw new IllegalArgumentException("Invalid log format - expected 6 fields");
+        }
+        try {
+            return Long.parseLong(line.substring(0, tab));
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid sequence format");
+        }
+    }
+
+    private static String escape(String field) {
+        return field.replace("\\", "\\\\")
+                .replace("\t", "\\t")
+                .replace("\n", "\\n")
+                .replace("\r", "\\r");
+    }
+
+    private static String unescape(String field) {
+        if (field.indexOf('\\') < 0) {
+            return field;
+        }
+
+        StringBuilder result = new StringBuilder(field.length());
+        for (int i = 0; i < field.length(); i++) {
+            char c = field.charAt(i);
+            if (c != '\\' || i + 1 == field.length()) {
+                result.append(c);
+                continue;
+            }
+            char next = field.charAt(++i);
+            switch (next) {
+                case 't':
+                    result.append('\t');
+                    break;
+                case 'n':
+                    result.append('\n');
+                    break;
+                case 'r':
+                    result.append('\r');
+                    break;
+                case '\\':
+                    result.append('\\');
+                    break;
+                default:
+                    // Not an escape this format writes; keep it as it was
+                    result.append(c).append(next);
+            }
+        }
+        return result.toString();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("#%d %s %s | Before: %s | After: %s",
+                sequence, type, id,
+                before == null ? NONE : before.toFileFormat(),
+                after == null ? NONE : after.toFileFormat());
+    }
+}
\ No newline at end of file
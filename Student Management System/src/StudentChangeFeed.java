@@ -0,0 +1,521 @@
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * Change feed for repository mutations
+ * Events are appended to a file-backed log and delivered to Flow subscribers by tailing that log,
+ * so subscribers can resume from any sequence number and slow subscribers never buffer in memory.
+ * A sparse sequence-to-offset index lets readers seek close to where they resume instead of
+ * scanning the log from the start, and truncateBefore rotates old entries out.
+ */
+public class StudentChangeFeed implements Flow.Publisher<StudentChangeEvent>, Closeable {
+    private static final int READ_BUFFER_SIZE = 64 * 1024;
+    private static final int INDEX_INTERVAL = 256;
+    private final Path logPath;
+    private final ExecutorService executor;
+    private final Set<LogSubscription> subscriptions;
+    // Byte offset of every INDEX_INTERVAL-th entry, keyed by sequence number
+    private final NavigableMap<Long, Long> offsets;
+    private FileChannel channel;
+    private long logLength;
+    private long firstSequence;
+    private long lastSequence;
+    // Bumped whenever truncateBefore rewrites the log, invalidating byte positions held by readers
+    private int generation;
+    private DurabilityLevel durability = DurabilityLevel.FSYNC;
+    private boolean closed;
+
+    public StudentChangeFeed(Path logPath) throws IOException {
+        this.logPath = logPath;
+        this.subscriptions = ConcurrentHashMap.newKeySet();
+        this.offsets = new TreeMap<>();
+        this.executor = Executors.newCachedThreadPool(runnable -> {
+            Thread thread = new Thread(runnable, "student-change-feed");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scanLog();
+        this.channel = openForAppend();
+    }
+
+    private FileChannel openForAppend() throws IOException {
+        FileChannel appendChannel = FileChannel.open(logPath, StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+        appendChannel.position(logLength);
+        return appendChannel;
+    }
+
+    /**
+     * Find the first and last sequence numbers already in the log
+     * Only a last entry missing its line end can come from a torn append, so only that is dropped;
+     * a damaged entry anywhere else means the log is corrupt and opening it fails
+     */
+    private void scanLog() throws IOException {
+        if (!Files.exists(logPath)) {
+            return;
+        }
+
+        long size;
+        long validLength;
+        try (FileChannel channel = FileChannel.open(logPath, StandardOpenOption.READ)) {
+            size = channel.size();
+            validLength = forEachLine(channel, 0, size, (line, offset) -> {
+                scanEntry(line, offset);
+                return true;
+            });
+        }
+
+        // Drop a torn trailing entry so new events start on a clean line
+        if (validLength < size) {
+            System.err.println("Dropping a torn change log entry after #" + lastSequence + ".");
+            try (FileChannel channel = FileChannel.open(logPath, StandardOpenOption.WRITE)) {
+                channel.truncate(validLength);
+            }
+        }
+        logLength = validLength;
+    }
+
+    private void scanEntry(String line, long offset) throws IOException {
+        if (line.trim().isEmpty()) {
+            return;
+        }
+
+        long sequence;
+        try {
+            sequence = StudentChangeEvent.sequenceOf(line);
+        } catch (IllegalArgumentException e) {
+            throw new IOException("Change log " + logPath + " is corrupt at byte " + offset
+                    + " (after #" + lastSequence + "): " + e.getMessage());
+        }
+        if (sequence <= lastSequence) {
+            throw new IOException("Change log " + logPath + " is corrupt at byte " + offset
+                    + ": #" + sequence + " follows #" + lastSequence);
+        }
+        indexEntry(sequence, offset);
+    }
+
+    private void indexEntry(long sequence, long offset) {
+        if (firstSequence == 0) {
+            firstSequence = sequence;
+        }
+        if (offsets.isEmpty() || sequence - offsets.lastKey() >= INDEX_INTERVAL) {
+            offsets.put(sequence, offset);
+        }
+        lastSequence = sequence;
+    }
+
+    /**
+     * Offset of an indexed entry at or before the given sequence, where a reader can start scanning
+     */
+    private synchronized long offsetFor(long sequence) {
+        Map.Entry<Long, Long> entry = offsets.floorEntry(sequence);
+        return entry == null ? 0 : entry.getValue();
+    }
+
+    /**
+     * Receives complete log lines with the byte offset they start at
+     */
+    private interface LineHandler {
+        /**
+         * @return false to stop before this line, leaving it unconsumed
+         */
+        boolean accept(String line, long offset) throws IOException;
+    }
+
+    /**
+     * Pass every complete line in [start, end) of the log to the handler
+     *
+     * @return offset just past the last consumed line; a trailing line without its line end is never consumed
+     */
+    private static long forEachLine(FileChannel channel, long start, long end, LineHandler handler) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(READ_BUFFER_SIZE);
+        ByteArrayOutputStream line = new ByteArrayOutputStream(256);
+        long consumed = start;
+        long readPosition = start;
+        while (readPosition < end) {
+            buffer.clear();
+            buffer.limit((int) Math.min(buffer.capacity(), end - readPosition));
+            if (channel.read(buffer, readPosition) <= 0) {
+                break;
+            }
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                byte b = buffer.get();
+                readPosition++;
+                if (b != '\n') {
+                    line.write(b);
+                    continue;
+                }
+                String text = new String(line.toByteArray(), StandardCharsets.UTF_8);
+                line.reset();
+                if (!handler.accept(text, consumed)) {
+                    return consumed;
+                }
+                consumed = readPosition;
+            }
+        }
+        return consumed;
+    }
+
+    /**
+     * Append a change to the log and wake up subscribers
+     */
+    public StudentChangeEvent append(StudentChangeEvent.Type type, String id, Student before, Student after) throws IOException {
+        StudentChangeEvent event;
+        synchronized (this) {
+            if (closed) {
+                throw new IllegalStateException("Change feed is closed");
+            }
+            event = new StudentChangeEvent(lastSequence + 1, System.currentTimeMillis(), type, id, before, after);
+            ByteBuffer entry = ByteBuffer.wrap((event.toLogFormat() + "\n").getBytes(StandardCharsets.UTF_8));
+            int length = entry.remaining();
+            try {
+                while (entry.hasRemaining()) {
+                    channel.write(entry);
+                }
+                if (durability == DurabilityLevel.FSYNC) {
+                    channel.force(false);
+                }
+            } catch (IOException e) {
+                // Cut off a partial entry so the next append does not continue a broken line
+                try {
+                    channel.truncate(logLength);
+                    channel.position(logLength);
+                } catch (IOException truncateError) {
+                    e.addSuppressed(truncateError);
+                }
+                throw e;
+            }
+            indexEntry(event.getSequence(), logLength);
+            logLength += length;
+        }
+
+        for (LogSubscription subscription : subscriptions) {
+            subscription.signal();
+        }
+        return event;
+    }
+
+    /**
+     * Read all logged events with a sequence number of at least fromSequence
+     */
+    public List<StudentChangeEvent> readFrom(long fromSequence) throws IOException {
+        List<StudentChangeEvent> events = new ArrayList<>();
+        readFrom(fromSequence, events::add);
+        return events;
+    }
+
+    /**
+     * Pass logged events with a sequence number of at least fromSequence to the action in log order,
+     * without holding them all in memory
+     */
+    public void readFrom(long fromSequence, Consumer<StudentChangeEvent> action) throws IOException {
+        FileChannel reader;
+        long start;
+        long end;
+        synchronized (this) {
+            // Opened under the lock so the offsets match the file even if it is being rotated
+            reader = FileChannel.open(logPath, StandardOpenOption.READ);
+            start = offsetFor(fromSequence);
+            end = logLength;
+        }
+
+        try (FileChannel logReader = reader) {
+            forEachLine(logReader, start, end, (line, offset) -> {
+                // Entries before fromSequence are skipped on their sequence number alone
+                if (!line.trim().isEmpty() && StudentChangeEvent.sequenceOf(line) >= fromSequence) {
+                    action.accept(StudentChangeEvent.fromLogFormat(line));
+                }
+                return true;
+            });
+        }
+    }
+
+    /**
+     * Subscribe to changes made from now on
+     */
+    @Override
+    public void subscribe(Flow.Subscriber<? super StudentChangeEvent> subscriber) {
+        subscribe(subscriber, getLastSequence() + 1);
+    }
+
+    /**
+     * Subscribe starting at a sequence number, replaying logged events before following live ones
+     */
+    public void subscribe(Flow.Subscriber<? super StudentChangeEvent> subscriber, long fromSequence) {
+        Objects.requireNonNull(subscriber, "Subscriber cannot be null");
+        LogSubscription subscription = new LogSubscription(subscriber, fromSequence);
+        boolean open;
+        synchronized (this) {
+            open = !closed;
+            if (open) {
+                subscriptions.add(subscription);
+            }
+        }
+        if (!open) {
+            // close() has shut the executor down, so signal on the caller's thread
+            subscriber.onSubscribe(new Flow.Subscription() {
+                @Override
+                public void request(long n) {
+                }
+
+                @Override
+                public void cancel() {
+                }
+            });
+            subscriber.onError(new IllegalStateException("Change feed is closed"));
+            return;
+        }
+        executor.execute(() -> {
+            subscriber.onSubscribe(subscription);
+            subscription.started = true;
+            subscription.signal();
+        });
+    }
+
+    /**
+     * Sequence number of the oldest event in the log, or 0 if the log is empty
+     */
+    public synchronized long getFirstSequence() {
+        return firstSequence;
+    }
+
+    /**
+     * Sequence number of the newest event in the log, or 0 if the log is empty
+     */
+    public synchronized long getLastSequence() {
+        return lastSequence;
+    }
+
+    public Path getLogPath() {
+        return logPath;
+    }
+
+    /**
+     * Set whether appends are forced to disk before returning (FSYNC) or left to the OS
+     */
+    public synchronized void setDurability(DurabilityLevel durability) {
+        if (durability == null) {
+            throw new IllegalArgumentException("Durability level cannot be null");
+        }
+        this.durability = durability;
+    }
+
+    /**
+     * Drop logged events before the given sequence number by atomically rewriting the log
+     * The newest event is always kept so numbering continues after a restart; subscribers
+     * that still need a dropped event fail and have to resynchronise (replicas take a snapshot)
+     */
+    public synchronized void truncateBefore(long sequence) throws IOException {
+        if (closed) {
+            throw new IllegalStateException("Change feed is closed");
+        }
+        long keepFrom = Math.min(sequence, lastSequence);
+        if (firstSequence == 0 || keepFrom <= firstSequence) {
+            return;
+        }
+
+        Path tempPath = logPath.resolveSibling(logPath.getFileName() + ".tmp");
+        long[] cut = {logLength};
+        long[] keptFirst = {lastSequence};
+        try (FileChannel reader = FileChannel.open(logPath, StandardOpenOption.READ)) {
+            // Scan on from the nearest indexed entry to find where the first kept entry starts
+            forEachLine(reader, offsetFor(keepFrom), logLength, (line, offset) -> {
+                if (line.trim().isEmpty() || StudentChangeEvent.sequenceOf(line) < keepFrom) {
+                    return true;
+                }
+                cut[0] = offset;
+                keptFirst[0] = StudentChangeEvent.sequenceOf(line);
+                return false;
+            });
+
+            try (FileChannel temp = FileChannel.open(tempPath,
+                    StandardOpenOption.CREATE,
+                    StandardOpenOption.WRITE,
+                    StandardOpenOption.TRUNCATE_EXISTING)) {
+                long position = cut[0];
+                while (position < logLength) {
+                    position += reader.transferTo(position, logLength - position, temp);
+                }
+                if (durability == DurabilityLevel.FSYNC) {
+                    temp.force(true);
+                }
+            }
+        }
+
+        channel.close();
+        try {
+            StudentDataFile.replace(tempPath, logPath, durability);
+
+            NavigableMap<Long, Long> kept = new TreeMap<>();
+            kept.put(keptFirst[0], 0L);
+            for (Map.Entry<Long, Long> entry : offsets.tailMap(keptFirst[0], false).entrySet()) {
+                kept.put(entry.getKey(), entry.getValue() - cut[0]);
+            }
+            offsets.clear();
+            offsets.putAll(kept);
+            logLength -= cut[0];
+            firstSequence = keptFirst[0];
+            generation++;
+        } finally {
+            channel = openForAppend();
+        }
+
+        for (LogSubscription subscription : subscriptions) {
+            subscription.signal();
+        }
+    }
+
+    /**
+     * Close the log and complete all subscribers
+     */
+    @Override
+    public void close() throws IOException {
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            channel.close();
+        }
+        for (LogSubscription subscription : subscriptions) {
+            subscription.signal();
+        }
+        executor.shutdown();
+    }
+
+    private synchronized boolean isClosed() {
+        return closed;
+    }
+
+    private synchronized long getLogLength() {
+        return logLength;
+    }
+
+    /**
+     * Subscription that tails the log file from a byte position, honouring subscriber demand
+     */
+    private class LogSubscription implements Flow.Subscription {
+        private final Flow.Subscriber<? super StudentChangeEvent> subscriber;
+        private final AtomicLong demand = new AtomicLong();
+        private final AtomicInteger pendingSignals = new AtomicInteger();
+        private volatile boolean started;
+        private volatile boolean cancelled;
+        private long nextSequence;
+        private long position;
+        // Log generation that position refers to; -1 until the first drain seeks
+        private int readerGeneration = -1;
+
+        LogSubscription(Flow.Subscriber<? super StudentChangeEvent> subscriber, long fromSequence) {
+            this.subscriber = subscriber;
+            this.nextSequence = fromSequence;
+        }
+
+        @Override
+        public void request(long n) {
+            if (n <= 0) {
+                cancel();
+                subscriber.onError(new IllegalArgumentException("Requested count must be positive"));
+                return;
+            }
+            demand.getAndUpdate(current -> current + n < 0 ? Long.MAX_VALUE : current + n);
+            signal();
+        }
+
+        @Override
+        public void cancel() {
+            cancelled = true;
+            subscriptions.remove(this);
+        }
+
+        /**
+         * Schedule a drain; concurrent signals collapse into one running drain loop
+         */
+        void signal() {
+            if (pendingSignals.getAndIncrement() == 0) {
+                try {
+                    executor.execute(this::drainLoop);
+                } catch (RejectedExecutionException e) {
+                    // Feed already closed and drained
+                }
+            }
+        }
+
+        private void drainLoop() {
+            int signals = pendingSignals.get();
+            while (true) {
+                try {
+                    drain();
+                } catch (IOException | IllegalArgumentException e) {
+                    cancel();
+                    subscriber.onError(e);
+                    return;
+                }
+                signals = pendingSignals.addAndGet(-signals);
+                if (signals == 0) {
+                    return;
+                }
+            }
+        }
+
+        /**
+         * Deliver complete log lines after the current position while there is demand
+         */
+        private void drain() throws IOException {
+            if (!started || cancelled) {
+                return;
+            }
+
+            FileChannel reader = null;
+            long end;
+            synchronized (StudentChangeFeed.this) {
+                if (readerGeneration != generation) {
+                    // First drain, or the log was rotated: seek by sequence number via the index
+                    if (firstSequence > 0 && nextSequence < firstSequence) {
+                        throw new IOException("Change log no longer holds #" + nextSequence);
+                    }
+                    position = offsetFor(nextSequence);
+                    readerGeneration = generation;
+                }
+                end = logLength;
+                if (demand.get() > 0 && position < end) {
+                    // Opened under the lock so position matches the file even if it is being rotated
+                    reader = FileChannel.open(logPath, StandardOpenOption.READ);
+                }
+            }
+
+            if (reader != null) {
+                try (FileChannel logReader = reader) {
+                    position = forEachLine(logReader, position, end, (line, offset) -> {
+                        if (demand.get() <= 0 || cancelled) {
+                            return false;
+                        }
+                        if (line.trim().isEmpty()) {
+                            return true;
+                        }
+                        long sequence = StudentChangeEvent.sequenceOf(line);
+                        if (sequence >= nextSequence) {
+                            StudentChangeEvent event = StudentChangeEvent.fromLogFormat(line);
+                            nextSequence = sequence + 1;
+                            demand.decrementAndGet();
+                            subscriber.onNext(event);
+                        }
+                        return true;
+                    });
+                }
+            }
+
+            if (isClosed() && !cancelled && position >= getLogLength()) {
+                cancel();
+                subscriber.onComplete();
+            }
+        }
+    }
+}
\ No newline at end of file
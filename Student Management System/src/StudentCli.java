@@ -0,0 +1,363 @@
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.file.*;
+import java.util.*;
+
+/**
+ * Command-line mode for scripted and scheduled jobs
+ * Runs without starting Swing/AWT, streams bulk files through the repository in batches
+ * and reports how long each command took on standard error
+ *
+ * Usage: java StudentCli [options] <command> [arguments]
+ */
+public class StudentCli {
+    private static final int DEFAULT_BATCH_SIZE = 5000;
+    private static final int EXIT_OK = 0;
+    private static final int EXIT_FAILED = 1;
+    private static final int EXIT_USAGE = 2;
+    private static final int EXIT_LOGGED_ONLY = 3;
+    private static final Set<String> VALUE_OPTIONS = new HashSet<>(Arrays.asList(
+            "--file", "--backup", "--durability", "--batch", "--changes",
+            "--compress", "--id", "--name", "--sort", "--limit"));
+
+    private final Map<String, String> options = new HashMap<>();
+    private final List<String> arguments = new ArrayList<>();
+    private String command;
+    private StudentRepository repository;
+
+    public static void main(String[] args) {
+        System.exit(run(args));
+    }
+
+    /**
+     * Run one command and return the process exit code
+     */
+    public static int run(String[] args) {
+        // Never let a command pull in a display connection
+        System.setProperty("java.awt.headless", "true");
+
+        StudentCli cli = new StudentCli();
+        try {
+            cli.parse(args);
+        } catch (IllegalArgumentException e) {
+            System.err.println("Error: " + e.getMessage());
+            printUsage();
+            return EXIT_USAGE;
+        }
+        if (cli.command == null || cli.command.equals("help")) {
+            printUsage();
+            return cli.command == null ? EXIT_USAGE : EXIT_OK;
+        }
+
+        try {
+            return cli.execute();
+        } catch (IllegalArgumentException e) {
+            System.err.println("Error: " + e.getMessage());
+            return EXIT_USAGE;
+        } catch (IOException e) {
+            System.err.println("Error: " + e.getMessage());
+            return EXIT_FAILED;
+        }
+    }
+
+    private static void printUsage() {
+        System.err.println("Usage: java StudentCli [options] <command> [arguments]");
+        System.err.println("       java StudentManager [options] <command> [arguments]");
+        System.err.println();
+        System.err.println("Commands:");
+        System.err.println("  import <file>...      Add the records in data files, skipping existing IDs");
+        System.err.println("  update <file>...      Replace existing students with the records in data files");
+        System.err.println("  export <file>         Write all students to a data file (--compress <level|off>)");
+        System.err.println("  query                 Print matching records (--id, --name, --sort name|grade, --limit)");
+        System.err.println("  stats                 Print student count, grade summary and file details");
+        System.err.println("  compact               Rewrite the data file, repairing it (--compress <level|off>)");
+        System.err.println();
+        System.err.println("Options:");
+        System.err.println("  --file <path>         Data file (default students.txt)");
+        System.err.println("  --backup <path>       Backup file (default <file name>_backup<extension>)");
+        System.err.println("  --durability <level>  none, atomic or fsync (default fsync)");
+        System.err.println("  --batch <size>        Records per save when importing or updating (default " + DEFAULT_BATCH_SIZE + ")");
+        System.err.println("  --changes <path>      Publish changes to the change feed log at this path");
+    }
+
+    private void parse(String[] args) {
+        for (int i = 0; i < args.length; i++) {
+            String arg = args[i];
+            if (arg.startsWith("--")) {
+                if (!VALUE_OPTIONS.contains(arg)) {
+                    throw new IllegalArgumentException("Unknown option " + arg);
+                }
+                if (i + 1 >= args.length) {
+                    throw new IllegalArgumentException("Option " + arg + " needs a value");
+                }
+                options.put(arg, args[++i]);
+            } else if (command == null) {
+                command = arg.toLowerCase();
+            } else {
+                arguments.add(arg);
+            }
+        }
+    }
+
+    private int execute() throws IOException {
+        long start = System.nanoTime();
+        Path filePath = Paths.get(options.getOrDefault("--file", "students.txt"));
+        Path backupPath = options.containsKey("--backup") ? Paths.get(options.get("--backup")) : backupPathFor(filePath);
+        repository = new StudentRepository(filePath, backupPath);
+        if (options.containsKey("--durability")) {
+            repository.setDurability(parseDurability(options.get("--durability")));
+        }
+        if (options.containsKey("--changes")) {
+            repository.openChangeFeed(Paths.get(options.get("--changes")));
+        }
+        report("load", start);
+
+        start = System.nanoTime();
+        try {
+            int result;
+            switch (command) {
+                case "import":
+                    result = bulkApply(true);
+                    break;
+                case "update":
+                    result = bulkApply(false);
+                    break;
+                case "export":
+                    result = export();
+                    break;
+                case "query":
+                    result = query();
+                    break;
+                case "stats":
+                    result = stats(filePath);
+                    break;
+                case "compact":
+                    result = compact(filePath);
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown command " + command);
+            }
+            report(command, start);
+            return result;
+        } finally {
+            if (repository.getChangeFeed() != null) {
+                repository.getChangeFeed().close();
+            }
+        }
+    }
+
+    /**
+     * Stream records from each input file and add or update them one batch (and one save) at a time
+     */
+    private int bulkApply(boolean add) throws IOException {
+        if (arguments.isEmpty()) {
+            throw new IllegalArgumentException(command + " needs at least one input file");
+        }
+        int batchSize = parsePositive("--batch", DEFAULT_BATCH_SIZE);
+
+        int applied = 0;
+        int skipped = 0;
+        int rejected = 0;
+        List<Student> batch = new ArrayList<>(batchSize);
+        for (String input : arguments) {
+            try (BufferedReader reader = StudentDataFile.openReader(Paths.get(input))) {
+                String line;
+                int lineNumber = 0;
+                while ((line = reader.readLine()) != null) {
+                    lineNumber++;
+                    line = line.trim();
+                    if (line.isEmpty() || line.startsWith("#")) {
+                        continue;
+                    }
+
+                    try {
+                        batch.add(StudentDataFile.parseRecord(line));
+                    } catch (IllegalArgumentException e) {
+                        rejected++;
+                        System.err.println(input + " line " + lineNumber + ": " + e.getMessage());
+                        continue;
+                    }
+                    if (batch.size() >= batchSize) {
+                        int count = applyBatch(add, batch);
+                        if (count < 0) {
+                            return batchFailed();
+                        }
+                        applied += count;
+                        skipped += batch.size() - count;
+                        batch.clear();
+                    }
+                }
+            }
+        }
+        if (!batch.isEmpty()) {
+            int count = applyBatch(add, batch);
+            if (count < 0) {
+                return batchFailed();
+            }
+            applied += count;
+            skipped += batch.size() - count;
+        }
+
+        System.out.println((add ? "Added " : "Updated ") + applied + " students, skipped " + skipped
+                + (add ? " existing IDs" : " unknown IDs") + ", rejected " + rejected + " invalid records.");
+        return rejected == 0 ? EXIT_OK : EXIT_FAILED;
+    }
+
+    /**
+     * Add or update one batch with a single save
+     *
+     * @return number of students added or updated, or -1 if the batch could not be logged or saved
+     */
+    private int applyBatch(boolean add, List<Student> batch) {
+        try {
+            return add ? repository.addStudents(batch) : repository.updateStudents(batch);
+        } catch (IOException e) {
+            return -1; // Already reported by the repository
+        }
+    }
+
+    /**
+     * Exit status after a failed batch; changes that reached the change log are committed even
+     * though the data file was not saved, and are replayed into it when the log is next opened
+     */
+    private int batchFailed() {
+        long logged = repository.getUnsavedChangeCount();
+        if (logged == 0) {
+            return EXIT_FAILED;
+        }
+        System.err.println(logged + " changes are committed to the change log but not to the data file;"
+                + " they are replayed when it is next opened with --changes.");
+        return EXIT_LOGGED_ONLY;
+    }
+
+    private int export() throws IOException {
+        if (arguments.size() != 1) {
+            throw new IllegalArgumentException("export needs exactly one output file");
+        }
+        Path output = Paths.get(arguments.get(0));
+        int compressionLevel = options.containsKey("--compress")
+                ? parseCompression(options.get("--compress")) : BlockCompression.NONE;
+
+        List<Student> students = repository.getAllStudents();
+        long sequence = repository.getChangeFeed() == null ? 0 : repository.getChangeFeed().getLastSequence();
+        StudentDataFile.write(output, students, sequence, DurabilityLevel.ATOMIC, compressionLevel);
+        System.out.println("Exported " + students.size() + " students to " + output
+                + " (" + Files.size(output) + " bytes).");
+        return EXIT_OK;
+    }
+
+    private int query() {
+        List<Student> results;
+        if (options.containsKey("--id")) {
+            Student student = repository.findById(options.get("--id"));
+            results = student == null ? new ArrayList<>() : new ArrayList<>(Collections.singletonList(student));
+        } else if (options.containsKey("--name")) {
+            results = repository.searchByName(options.get("--name"));
+        } else {
+            results = repository.getAllStudents();
+        }
+
+        String sort = options.get("--sort");
+        if ("name".equalsIgnoreCase(sort)) {
+            results.sort(Comparator.comparing(Student::getName, String.CASE_INSENSITIVE_ORDER));
+        } else if ("grade".equalsIgnoreCase(sort)) {
+            results.sort(StudentRepository.BY_GRADE_DESC);
+        } else if (sort != null) {
+            throw new IllegalArgumentException("Sort must be name or grade");
+        }
+
+        int limit = parsePositive("--limit", Integer.MAX_VALUE);
+        StringBuilder output = new StringBuilder();
+        for (int i = 0; i < results.size() && i < limit; i++) {
+            output.append(results.get(i).toFileFormat()).append(System.lineSeparator());
+        }
+        System.out.print(output);
+        return results.isEmpty() ? EXIT_FAILED : EXIT_OK;
+    }
+
+    private int stats(Path filePath) throws IOException {
+        List<Student> students = repository.getAllStudents();
+        System.out.println("Students:        " + students.size());
+        System.out.printf("Average grade:   %.2f%n", repository.getAverageGrade());
+        if (!students.isEmpty()) {
+            Student highest = Collections.min(students, StudentRepository.BY_GRADE_DESC);
+            Student lowest = Collections.max(students, StudentRepository.BY_GRADE_DESC);
+            System.out.printf("Highest average: %.2f (%s)%n", highest.getAverageGrade(), highest.getId());
+            System.out.printf("Lowest average:  %.2f (%s)%n", lowest.getAverageGrade(), lowest.getId());
+        }
+        if (Files.exists(filePath)) {
+            System.out.println("Data file:       " + filePath + " (" + Files.size(filePath) + " bytes"
+                    + (BlockCompression.isCompressed(filePath) ? ", compressed" : "") + ")");
+        }
+        System.out.println("Durability:      " + repository.getDurability());
+        return EXIT_OK;
+    }
+
+    /**
+     * Rewrite the data file from the loaded records, dropping damaged records and stale formatting
+     */
+    private int compact(Path filePath) throws IOException {
+        long before = Files.exists(filePath) ? Files.size(filePath) : 0;
+        if (options.containsKey("--compress")) {
+            repository.setCompression(parseCompression(options.get("--compress")));
+        }
+        if (!repository.saveToFile()) {
+            return EXIT_FAILED;
+        }
+        System.out.println("Compacted " + repository.getStudentCount() + " students: "
+                + before + " -> " + Files.size(filePath) + " bytes.");
+        return EXIT_OK;
+    }
+
+    private void report(String step, long startNanos) {
+        System.err.printf("%s took %.1f ms%n", step, (System.nanoTime() - startNanos) / 1e6);
+    }
+
+    private int parsePositive(String option, int defaultValue) {
+        if (!options.containsKey(option)) {
+            return defaultValue;
+        }
+        try {
+            int value = Integer.parseInt(options.get(option));
+            if (value > 0) {
+                return value;
+            }
+        } catch (NumberFormatException e) {
+            // Reported below
+        }
+        throw new IllegalArgumentException(option + " must be a positive number");
+    }
+
+    private static int parseCompression(String value) {
+        if (value.equalsIgnoreCase("off")) {
+            return BlockCompression.NONE;
+        }
+        try {
+            int level = Integer.parseInt(value);
+            BlockCompression.checkLevel(level);
+            return level;
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Compression must be off or a level between 0 and 9");
+        }
+    }
+
+    private static DurabilityLevel parseDurability(String value) {
+        try {
+            return DurabilityLevel.valueOf(value.toUpperCase());
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Durability must be none, atomic or fsync");
+        }
+    }
+
+    /**
+     * students.txt -> students_backup.txt, matching the application's default names
+     */
+    private static Path backupPathFor(Path filePath) {
+        String name = filePath.getFileName().toString();
+        int dot = name.lastIndexOf('.');
+        String backupName = dot > 0
+                ? name.substring(0, dot) + "_backup" + name.substring(dot)
+                : name + "_backup";
+        return filePath.resolveSibling(backupName);
+    }
+}
\ No newline at end of file
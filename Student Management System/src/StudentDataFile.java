@@ -0,0 +1,369 @@
+import java.io.*;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+import java.util.stream.IntStream;
+import java.util.zip.CRC32;
+
+/**
+ * Reads and writes student data files
+ * Checksummed files carry a CRC32 per record and an end-of-data trailer, so a torn or
+ * corrupted write is detected on load instead of silently dropping records
+ */
+public class StudentDataFile {
+    static final String HEADER = "# Student Management System Data File";
+    static final String FORMAT = "# Format: ID|Name|Email|PrelimGrade|MidtermGrade|FinalGrade";
+    static final String CHECKSUM_FORMAT = FORMAT + "|CRC32";
+    static final String SEQUENCE_PREFIX = "# Sequence: ";
+    static final String TRAILER_PREFIX = "# End of data: ";
+    private static final int CHECKSUMMED_FIELDS = 7;
+
+    private StudentDataFile() {
+    }
+
+    /**
+     * Result of reading a data file
+     */
+    public static class Contents {
+        private final List<Student> students = new ArrayList<>();
+        private long sequence;
+        private boolean checksummed;
+        private boolean trailerFound;
+        private int trailerCount = -1;
+        private int corruptRecords;
+        private boolean torn;
+        private boolean compressed;
+
+        public List<Student> getStudents() {
+            return students;
+        }
+
+        /**
+         * Change feed sequence number the file was saved at, or 0 if unknown
+         */
+        public long getSequence() {
+            return sequence;
+        }
+
+        /**
+         * False if a checksummed file is missing its trailer, has the wrong record count
+         * or contains records that fail their checksum
+         */
+        public boolean isIntact() {
+            if (!checksummed) {
+                return true;
+            }
+            return !torn && trailerFound && trailerCount == students.size() && corruptRecords == 0;
+        }
+
+        public int getCorruptRecords() {
+            return corruptRecords;
+        }
+
+        /**
+         * True if the file was block compressed
+         */
+        public boolean isCompressed() {
+            return compressed;
+        }
+
+        /**
+         * Append the contents of the next block of the same file
+         */
+        private void merge(Contents next) {
+            if (trailerFound) {
+                // Data after the trailer means the file was not written by a single save
+                corruptRecords += next.students.size();
+            } else {
+                students.addAll(next.students);
+            }
+            checksummed |= next.checksummed;
+            if (next.sequence != 0) {
+                sequence = next.sequence;
+            }
+            if (next.trailerFound) {
+                trailerFound = true;
+                trailerCount = next.trailerCount;
+            }
+            corruptRecords += next.corruptRecords;
+            torn |= next.torn;
+        }
+    }
+
+    /**
+     * Append the record checksum field to a student's file format
+     */
+    public static String seal(Student student) {
+        String record = student.toFileFormat();
+        return record + "|" + checksum(record);
+    }
+
+    /**
+     * Parse a record line with or without a checksum field
+     *
+     * @throws IllegalArgumentException if the line is malformed or fails its checksum
+     */
+    public static Student parseRecord(String line) throws IllegalArgumentException {
+        if (line == null || line.trim().isEmpty()) {
+            throw new IllegalArgumentException("Invalid file line");
+        }
+
+        line = line.trim();
+        int lastSeparator = line.lastIndexOf('|');
+        if (isChecksummed(line)) {
+            String record = line.substring(0, lastSeparator);
+            if (!checksum(record).equalsIgnoreCase(line.substring(lastSeparator + 1))) {
+                throw new IllegalArgumentException("Checksum mismatch");
+            }
+            return Student.fromFileFormat(record);
+        }
+        return Student.fromFileFormat(line);
+    }
+
+    static boolean isChecksummed(String line) {
+        return line.split("\\|", -1).length == CHECKSUMMED_FIELDS;
+    }
+
+    private static String checksum(String record) {
+        CRC32 crc = new CRC32();
+        crc.update(record.getBytes(StandardCharsets.UTF_8));
+        return String.format("%08x", crc.getValue());
+    }
+
+    /**
+     * Open a text reader over a data file, decompressing it if needed
+     */
+    public static BufferedReader openReader(Path path) throws IOException {
+        if (BlockCompression.isCompressed(path)) {
+            return new BufferedReader(new InputStreamReader(BlockCompression.openInputStream(path), StandardCharsets.UTF_8));
+        }
+        return Files.newBufferedReader(path, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Read a data file, verifying checksums and the trailer when present
+     * Compressed files are decompressed and parsed block by block in parallel
+     */
+    public static Contents read(Path path) throws IOException {
+        if (BlockCompression.isCompressed(path)) {
+            return readCompressed(path);
+        }
+
+        Contents contents = new Contents();
+        try (BufferedReader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+            readLines(reader, contents, "line ");
+        }
+        return contents;
+    }
+
+    private static Contents readCompressed(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            List<BlockCompression.Block> blocks = BlockCompression.readIndex(channel);
+
+            List<Contents> parts = new ArrayList<>(blocks.size());
+            for (int i = 0; i < blocks.size(); i++) {
+                parts.add(null);
+            }
+            IntStream.range(0, blocks.size()).parallel().forEach(i -> {
+                Contents part = new Contents();
+                part.checksummed = true; // Compressed files are always written with checksums
+                try {
+                    byte[] raw = BlockCompression.readBlock(channel, blocks.get(i));
+                    BufferedReader reader = new BufferedReader(
+                            new InputStreamReader(new ByteArrayInputStream(raw), StandardCharsets.UTF_8));
+                    readLines(reader, part, "block " + i + " line ");
+                } catch (IOException e) {
+                    System.err.println("Error reading block " + i + ": " + e.getMessage());
+                    part.torn = true;
+                }
+                parts.set(i, part);
+            });
+
+            Contents contents = new Contents();
+            contents.compressed = true;
+            contents.checksummed = true;
+            for (Contents part : parts) {
+                contents.merge(part);
+            }
+            if (BlockCompression.getEnd(blocks) != channel.size()) {
+                System.err.println("Compressed file ends with a partial block.");
+                contents.torn = true;
+            }
+            return contents;
+        }
+    }
+
+    private static void readLines(BufferedReader reader, Contents contents, String location) throws IOException {
+        String line;
+        int lineNumber = 0;
+        while ((line = reader.readLine()) != null) {
+            lineNumber++;
+            line = line.trim();
+            if (line.isEmpty()) {
+                continue;
+            }
+            if (line.startsWith("#")) {
+                readComment(line, contents);
+                continue; // Skip comments
+            }
+            if (contents.trailerFound) {
+                // Data after the trailer means the file was not written by a single save
+                contents.corruptRecords++;
+                continue;
+            }
+
+            contents.checksummed |= isChecksummed(line);
+            try {
+                contents.students.add(parseRecord(line));
+            } catch (IllegalArgumentException e) {
+                if (contents.checksummed) {
+                    contents.corruptRecords++;
+                }
+                System.err.println("Error parsing " + location + lineNumber + ": " + e.getMessage());
+            }
+        }
+    }
+
+    private static void readComment(String line, Contents contents) {
+        try {
+            if (line.equals(CHECKSUM_FORMAT)) {
+                contents.checksummed = true;
+            } else if (line.startsWith(SEQUENCE_PREFIX)) {
+                contents.sequence = Long.parseLong(line.substring(SEQUENCE_PREFIX.length()).trim());
+            } else if (line.startsWith(TRAILER_PREFIX)) {
+                contents.trailerFound = true;
+                contents.trailerCount = trailerCount(line);
+            }
+        } catch (NumberFormatException e) {
+            System.err.println("Invalid data file comment: " + line);
+        }
+    }
+
+    /**
+     * Record count written in an end-of-data trailer line
+     */
+    static int trailerCount(String line) throws NumberFormatException {
+        return Integer.parseInt(line.substring(TRAILER_PREFIX.length()).split(" ")[0]);
+    }
+
+    /**
+     * Write students to a plain-text data file at the given durability level
+     */
+    public static void write(Path path, Collection<Student> students, long sequence, DurabilityLevel level)
+            throws IOException {
+        write(path, students, sequence, level, BlockCompression.NONE);
+    }
+
+    /**
+     * Write students to a data file at the given durability level, block compressed
+     * at the given Deflate level unless it is BlockCompression.NONE
+     */
+    public static void write(Path path, Collection<Student> students, long sequence, DurabilityLevel level,
+                             int compressionLevel) throws IOException {
+        BlockCompression.checkLevel(compressionLevel);
+        boolean compressed = compressionLevel != BlockCompression.NONE;
+
+        if (level == DurabilityLevel.NONE) {
+            try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(path,
+                    StandardOpenOption.CREATE,
+                    StandardOpenOption.TRUNCATE_EXISTING))) {
+                writeContents(out, students, sequence, compressed, compressionLevel);
+            }
+            return;
+        }
+
+        Path tempPath = path.resolveSibling(path.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(tempPath,
+                StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            writeContents(new BufferedOutputStream(Channels.newOutputStream(channel)),
+                    students, sequence, true, compressionLevel);
+            if (level == DurabilityLevel.FSYNC) {
+                channel.force(true);
+            }
+        }
+        replace(tempPath, path, level);
+    }
+
+    /**
+     * Write the whole file and flush it, leaving the stream open so the caller can force it
+     */
+    private static void writeContents(OutputStream out, Collection<Student> students, long sequence,
+                                      boolean checksummed, int compressionLevel) throws IOException {
+        BlockCompression.BlockOutputStream blocks = null;
+        if (compressionLevel != BlockCompression.NONE) {
+            blocks = new BlockCompression.BlockOutputStream(out, compressionLevel);
+            out = blocks;
+        }
+
+        BufferedWriter writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+        writeContents(writer, students, sequence, checksummed);
+        writer.flush();
+        if (blocks != null) {
+            blocks.finish();
+        }
+    }
+
+    private static void writeContents(BufferedWriter writer, Collection<Student> students, long sequence,
+                                      boolean checksummed) throws IOException {
+        writer.write(HEADER + "\n");
+        writer.write((checksummed ? CHECKSUM_FORMAT : FORMAT) + "\n");
+        writer.write("# Last updated: " + new Date() + "\n");
+        if (checksummed) {
+            writer.write(SEQUENCE_PREFIX + sequence + "\n");
+        }
+
+        for (Student student : students) {
+            writer.write(checksummed ? seal(student) : student.toFileFormat());
+            writer.newLine();
+        }
+
+        if (checksummed) {
+            writer.write(TRAILER_PREFIX + students.size() + " records\n");
+        }
+    }
+
+    /**
+     * Copy the data file to its backup location
+     */
+    public static void backup(Path path, Path backupPath, DurabilityLevel level) throws IOException {
+        Files.copy(path, backupPath, StandardCopyOption.REPLACE_EXISTING);
+        if (level == DurabilityLevel.FSYNC) {
+            try (FileChannel channel = FileChannel.open(backupPath, StandardOpenOption.WRITE)) {
+                channel.force(true);
+            }
+        }
+    }
+
+    /**
+     * Atomically move a fully written temp file over the target
+     */
+    static void replace(Path tempPath, Path path, DurabilityLevel level) throws IOException {
+        try {
+            Files.move(tempPath, path, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(tempPath, path, StandardCopyOption.REPLACE_EXISTING);
+        }
+
+        if (level == DurabilityLevel.FSYNC) {
+            forceDirectory(path.toAbsolutePath().getParent());
+        }
+    }
+
+    /**
+     * Force a directory entry change (the rename) to disk where the platform allows it
+     */
+    private static void forceDirectory(Path directory) {
+        if (directory == null) {
+            return;
+        }
+        try (FileChannel channel = FileChannel.open(directory, StandardOpenOption.READ)) {
+            channel.force(true);
+        } catch (IOException e) {
+            // Not supported on every platform (e.g. Windows); the file itself is already forced
+        }
+    }
+}
\ No newline at end of file
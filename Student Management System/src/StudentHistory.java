@@ -0,0 +1,240 @@
+import java.util.*;
+
+/**
+ * Versioned history of student records
+ * Every change appends a new version instead of overwriting, so the store can answer
+ * point-in-time reads, per-student history and grade-change queries.
+ * Versions carry the change feed sequence number of the change that made them (0 if it was not logged);
+ * StudentRepository rebuilds them from the change log when the feed opens, so history survives restarts.
+ * Not thread-safe; StudentRepository guards it with its own lock.
+ */
+public class StudentHistory {
+    /**
+     * Timestamp of baseline versions, visible to every point-in-time read
+     */
+    public static final long BASELINE = 0L;
+
+    /**
+     * Sequence number of versions that were not written to a change log
+     */
+    public static final long UNLOGGED = 0L;
+
+    // Keyed by lower-case ID; each list is in timestamp order
+    private final Map<String, List<StudentVersion>> versions;
+    private int versionCount;
+
+    public StudentHistory() {
+        this.versions = new LinkedHashMap<>();
+    }
+
+    /**
+     * Record a student that existed before history began
+     */
+    public void recordBaseline(Student student) {
+        record(UNLOGGED, student.getId(), BASELINE, student);
+    }
+
+    /**
+     * Record a new version of a student made by the change with the given sequence number;
+     * pass null to record a deletion
+     */
+    public StudentVersion record(long sequence, String id, long timestamp, Student student) {
+        return record(sequence, id, timestamp, student, null);
+    }
+
+    /**
+     * Record a change that renamed a student: a deletion of the old ID, and a version of the new ID
+     * that keeps the before image so grade-change queries still see the change
+     */
+    public StudentVersion recordRename(long sequence, String oldId, long timestamp, Student before, Student after) {
+        record(sequence, oldId, timestamp, null, null);
+        return record(sequence, after.getId(), timestamp, after, before);
+    }
+
+    private StudentVersion record(long sequence, String id, long timestamp, Student student, Student renamedFrom) {
+        List<StudentVersion> studentVersions = versions.computeIfAbsent(key(id), k -> new ArrayList<>(2));
+
+        // Keep timestamps non-decreasing so binary search stays valid if the clock steps back
+        if (!studentVersions.isEmpty()) {
+            timestamp = Math.max(timestamp, studentVersions.get(studentVersions.size() - 1).getTimestamp());
+        }
+
+        StudentVersion version = new StudentVersion(sequence, timestamp, student, renamedFrom);
+        studentVersions.add(version);
+        versionCount++;
+        return version;
+    }
+
+    /**
+     * Check whether any version of a student is retained
+     */
+    public boolean contains(String id) {
+        return versions.containsKey(key(id));
+    }
+
+    /**
+     * Make the latest versions match the given students: add a baseline for students without
+     * history, and a version at the given time where the latest one differs (changes made while
+     * no change log was written)
+     */
+    public void reconcile(Collection<Student> current, long timestamp) {
+        Map<String, Student> byKey = new HashMap<>();
+        for (Student student : current) {
+            byKey.put(key(student.getId()), student);
+        }
+
+        for (Map.Entry<String, List<StudentVersion>> entry : versions.entrySet()) {
+            List<StudentVersion> studentVersions = entry.getValue();
+            StudentVersion latest = studentVersions.get(studentVersions.size() - 1);
+            Student student = byKey.remove(entry.getKey());
+            if (!sameRecord(latest.getStudent(), student)) {
+                String id = student != null ? student.getId() : latest.getStudent().getId();
+                record(UNLOGGED, id, timestamp, student);
+            }
+        }
+        for (Student student : byKey.values()) {
+            recordBaseline(student);
+        }
+    }
+
+    /**
+     * Students as they were at the given time
+     */
+    public List<Student> asOf(long timestamp) {
+        List<Student> snapshot = new ArrayList<>();
+        for (List<StudentVersion> studentVersions : versions.values()) {
+            int index = latestAtOrBefore(studentVersions, timestamp);
+            if (index >= 0 && !studentVersions.get(index).isDeleted()) {
+                snapshot.add(studentVersions.get(index).getStudent());
+            }
+        }
+        return snapshot;
+    }
+
+    /**
+     * All retained versions of one student, oldest first
+     */
+    public List<StudentVersion> getHistory(String id) {
+        if (id == null || id.trim().isEmpty()) {
+            return new ArrayList<>();
+        }
+        List<StudentVersion> studentVersions = versions.get(key(id));
+        return studentVersions == null ? new ArrayList<>() : new ArrayList<>(studentVersions);
+    }
+
+    /**
+     * Updates made within [fromTimestamp, toTimestamp] that changed at least one grade, in time order
+     */
+    public List<StudentChangeEvent> getGradeChanges(long fromTimestamp, long toTimestamp) {
+        List<StudentChangeEvent> changes = new ArrayList<>();
+        for (List<StudentVersion> studentVersions : versions.values()) {
+            // Start at the first version inside the window; its predecessor (or, after a rename,
+            // the student under its old ID) supplies the before image
+            int index = Math.max(0, latestAtOrBefore(studentVersions, fromTimestamp - 1) + 1);
+            for (; index < studentVersions.size(); index++) {
+                StudentVersion after = studentVersions.get(index);
+                if (after.getTimestamp() > toTimestamp) {
+                    break;
+                }
+                if (after.isDeleted()) {
+                    continue;
+                }
+                Student before = after.getRenamedFrom();
+                if (before == null && index > 0) {
+                    before = studentVersions.get(index - 1).getStudent();
+                }
+                Student current = after.getStudent();
+                if (before != null && gradesDiffer(before, current)) {
+                    changes.add(new StudentChangeEvent(after.getSequence(), after.getTimestamp(),
+                            StudentChangeEvent.Type.UPDATE, before.getId(), before, current));
+                }
+            }
+        }
+        changes.sort(Comparator.comparingLong(StudentChangeEvent::getTimestamp)
+                .thenComparingLong(StudentChangeEvent::getSequence));
+        return changes;
+    }
+
+    /**
+     * Drop versions superseded before the horizon, keeping the one visible at the horizon
+     * Point-in-time reads at or after the horizon are unaffected
+     *
+     * @return number of versions removed
+     */
+    public int compact(long horizonTimestamp) {
+        int removed = 0;
+        Iterator<List<StudentVersion>> iterator = versions.values().iterator();
+        while (iterator.hasNext()) {
+            List<StudentVersion> studentVersions = iterator.next();
+            int base = latestAtOrBefore(studentVersions, horizonTimestamp);
+            if (base < 0) {
+                continue;
+            }
+
+            // A deletion as the base carries no information once older versions are gone
+            int keepFrom = studentVersions.get(base).isDeleted() ? base + 1 : base;
+            if (keepFrom > 0) {
+                studentVersions.subList(0, keepFrom).clear();
+                removed += keepFrom;
+            }
+            if (studentVersions.isEmpty()) {
+                iterator.remove();
+            } else if (studentVersions.size() < 4) {
+                ((ArrayList<StudentVersion>) studentVersions).trimToSize();
+            }
+        }
+        versionCount -= removed;
+        return removed;
+    }
+
+    /**
+     * Forget all versions
+     */
+    public void clear() {
+        versions.clear();
+        versionCount = 0;
+    }
+
+    /**
+     * Total number of retained versions
+     */
+    public int getVersionCount() {
+        return versionCount;
+    }
+
+    /**
+     * Binary search for the last version with a timestamp at or before the given time, or -1
+     */
+    private static int latestAtOrBefore(List<StudentVersion> studentVersions, long timestamp) {
+        int low = 0;
+        int high = studentVersions.size() - 1;
+        int result = -1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            if (studentVersions.get(mid).getTimestamp() <= timestamp) {
+                result = mid;
+                low = mid + 1;
+            } else {
+                high = mid - 1;
+            }
+        }
+        return result;
+    }
+
+    private static boolean sameRecord(Student a, Student b) {
+        if (a == null || b == null) {
+            return a == b;
+        }
+        return a.toFileFormat().equals(b.toFileFormat());
+    }
+
+    private static boolean gradesDiffer(Student before, Student after) {
+        return Double.compare(before.getPrelimGrade(), after.getPrelimGrade()) != 0
+                || Double.compare(before.getMidtermGrade(), after.getMidtermGrade()) != 0
+                || Double.compare(before.getFinalGrade(), after.getFinalGrade()) != 0;
+    }
+
+    private static String key(String id) {
+        return id.trim().toLowerCase();
+    }
+}
\ No newline at end of file
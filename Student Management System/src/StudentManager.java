@@ -14,6 +14,11 @@ public class StudentManager {
     }
 
     public static void main(String[] args) {
+        // Any arguments select command-line mode, which never touches Swing
+        if (args.length > 0) {
+            System.exit(StudentCli.run(args));
+        }
+
         // Set look and feel
         try {
             UIManager.setLookAndFeel(UIManager.getSystemLookAndFeelClassName());
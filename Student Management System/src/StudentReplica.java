@@ -0,0 +1,257 @@
+import java.io.*;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Read-only replica of a primary student store
+ * Applies the primary's change log incrementally, serves reads from its own repository,
+ * and keeps a local snapshot plus log offset so a restart only catches up on missed changes.
+ * The snapshot is checkpointed every SAVE_INTERVAL changes or CHECKPOINT_INTERVAL_MILLIS,
+ * not per change; changes applied after the last checkpoint are fetched again on restart.
+ */
+public class StudentReplica implements Closeable {
+    private static final int SAVE_INTERVAL = 1000;
+    private static final long CHECKPOINT_INTERVAL_MILLIS = 5000;
+    private static final long RECONNECT_DELAY_MILLIS = 500;
+    private final String host;
+    private final int port;
+    private final Path sequencePath;
+    private final StudentRepository repository;
+    private final ScheduledExecutorService checkpointer;
+    private final Object sequenceLock = new Object();
+    private volatile long lastSequence;
+    private long checkpointedSequence;
+    private volatile boolean closed;
+    private volatile Socket socket;
+
+    /**
+     * Open the local snapshot (if any) and start following the primary
+     */
+    public StudentReplica(String host, int port, Path snapshotPath) {
+        this.host = host;
+        this.port = port;
+        this.sequencePath = snapshotPath.resolveSibling(snapshotPath.getFileName() + ".seq");
+        Path backupPath = snapshotPath.resolveSibling(snapshotPath.getFileName() + ".bak");
+        this.repository = new StudentRepository(snapshotPath, backupPath);
+        this.lastSequence = readSequence();
+        this.checkpointedSequence = lastSequence;
+
+        this.checkpointer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "replica-checkpoint-" + snapshotPath.getFileName());
+            thread.setDaemon(true);
+            return thread;
+        });
+        checkpointer.scheduleWithFixedDelay(this::checkpointIfBehind,
+                CHECKPOINT_INTERVAL_MILLIS, CHECKPOINT_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+
+        Thread follower = new Thread(this::followLoop, "replica-" + snapshotPath.getFileName());
+        follower.setDaemon(true);
+        follower.start();
+    }
+
+    private long readSequence() {
+        try {
+            if (Files.exists(sequencePath)) {
+                return Long.parseLong(new String(Files.readAllBytes(sequencePath), StandardCharsets.UTF_8).trim());
+            }
+        } catch (IOException | NumberFormatException e) {
+            System.err.println("Error reading replica offset: " + e.getMessage());
+        }
+        return 0;
+    }
+
+    /**
+     * Persist the snapshot, then the offset it reflects
+     * Replaying changes is idempotent, so a crash between the two writes is harmless
+     */
+    private synchronized void checkpoint() {
+        // Read the offset first: changes are applied before the offset moves, so the snapshot covers it
+        long sequence = lastSequence;
+        if (repository.saveToFile()) {
+            try {
+                Files.write(sequencePath, Long.toString(sequence).getBytes(StandardCharsets.UTF_8));
+                checkpointedSequence = sequence;
+            } catch (IOException e) {
+                System.err.println("Error saving replica offset: " + e.getMessage());
+            }
+        }
+    }
+
+    private synchronized void checkpointIfBehind() {
+        if (lastSequence != checkpointedSequence) {
+            checkpoint();
+        }
+    }
+
+    /**
+     * Keep a connection to the primary open, reconnecting after failures
+     */
+    private void followLoop() {
+        while (!closed) {
+            try (Socket connection = new Socket(host, port)) {
+                socket = connection;
+                follow(connection);
+            } catch (IOException | IllegalArgumentException e) {
+                if (!closed) {
+                    System.err.println("Replica lost connection to primary: " + e.getMessage());
+                }
+            }
+            if (!closed) {
+                try {
+                    Thread.sleep(RECONNECT_DELAY_MILLIS);
+                } catch (InterruptedException e) {
+                    return;
+                }
+            }
+        }
+    }
+
+    private void follow(Socket connection) throws IOException {
+        BufferedReader reader = new BufferedReader(new InputStreamReader(connection.getInputStream(), StandardCharsets.UTF_8));
+        Writer writer = new OutputStreamWriter(connection.getOutputStream(), StandardCharsets.UTF_8);
+        writer.write(ReplicationPrimary.SYNC + " " + lastSequence + "\n");
+        writer.flush();
+
+        String line;
+        while ((line = reader.readLine()) != null) {
+            if (line.startsWith(ReplicationPrimary.SNAPSHOT + " ")) {
+                applySnapshot(reader, Long.parseLong(line.substring(ReplicationPrimary.SNAPSHOT.length() + 1).trim()));
+                continue;
+            }
+
+            StudentChangeEvent event = StudentChangeEvent.fromLogFormat(line);
+            if (event.getSequence() <= lastSequence) {
+                continue; // Already applied
+            }
+            repository.applyChange(event);
+            setLastSequence(event.getSequence());
+
+            // Each checkpoint rewrites the whole snapshot, so only take one every SAVE_INTERVAL changes;
+            // the scheduled checkpoint covers quieter periods
+            if (event.getSequence() - getCheckpointedSequence() >= SAVE_INTERVAL) {
+                checkpoint();
+            }
+        }
+        checkpointIfBehind();
+    }
+
+    private synchronized long getCheckpointedSequence() {
+        return checkpointedSequence;
+    }
+
+    private void applySnapshot(BufferedReader reader, long sequence) throws IOException {
+        List<Student> snapshot = new ArrayList<>();
+        String line;
+        while ((line = reader.readLine()) != null && !line.equals(ReplicationPrimary.END)) {
+            snapshot.add(Student.fromFileFormat(line));
+        }
+        if (line == null) {
+            throw new EOFException("Snapshot ended early");
+        }
+
+        repository.replaceAll(snapshot);
+        setLastSequence(sequence);
+        checkpoint();
+        System.err.println("Replica loaded snapshot of " + snapshot.size() + " students at #" + sequence);
+    }
+
+    private void setLastSequence(long sequence) {
+        synchronized (sequenceLock) {
+            lastSequence = sequence;
+            sequenceLock.notifyAll();
+        }
+    }
+
+    /**
+     * Wait until the replica has applied the given sequence number
+     */
+    public boolean awaitSequence(long sequence, long timeoutMillis) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + timeoutMillis;
+        synchronized (sequenceLock) {
+            while (lastSequence < sequence) {
+                long remaining = deadline - System.currentTimeMillis();
+                if (remaining <= 0) {
+                    return false;
+                }
+                sequenceLock.wait(remaining);
+            }
+            return true;
+        }
+    }
+
+    /**
+     * Sequence number of the last change applied from the primary
+     */
+    public long getLastSequence() {
+        return lastSequence;
+    }
+
+    /**
+     * Find student by ID
+     */
+    public Student findById(String id) {
+        return repository.findById(id);
+    }
+
+    /**
+     * Search students by name (partial match)
+     */
+    public List<Student> searchByName(String name) {
+        return repository.searchByName(name);
+    }
+
+    /**
+     * Get all students
+     */
+    public List<Student> getAllStudents() {
+        return repository.getAllStudents();
+    }
+
+    /**
+     * Sort students by name (A-Z)
+     */
+    public List<Student> getSortedByName() {
+        return repository.getSortedByName();
+    }
+
+    /**
+     * Sort students by average grade (highest first)
+     */
+    public List<Student> getSortedByGrade() {
+        return repository.getSortedByGrade();
+    }
+
+    /**
+     * Get total number of students
+     */
+    public int getStudentCount() {
+        return repository.getStudentCount();
+    }
+
+    /**
+     * Calculate average grade across all students
+     */
+    public double getAverageGrade() {
+        return repository.getAverageGrade();
+    }
+
+    /**
+     * Stop following the primary and save the local snapshot
+     */
+    @Override
+    public void close() throws IOException {
+        closed = true;
+        checkpointer.shutdown();
+        Socket current = socket;
+        if (current != null) {
+            current.close();
+        }
+        checkpoint();
+    }
+}
\ No newline at end of file
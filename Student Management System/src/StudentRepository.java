@@ -10,15 +10,44 @@ import java.util.stream.Collectors;
 public class StudentRepository {
     private static final String FILE_NAME = "students.txt";
     private static final String BACKUP_FILE_NAME = "students_backup.txt";
+    static final Comparator<Student> BY_GRADE_DESC =
+            (s1, s2) -> Double.compare(s2.getAverageGrade(), s1.getAverageGrade());
     private final Path filePath;
     private final Path backupPath;
-    private List<Student> students;
+    // Keyed by lower-case ID; insertion order is file order
+    private final Map<String, Student> students;
+    private final StudentHistory history;
+    private StudentChangeFeed changeFeed;
+    private DurabilityLevel durability = DurabilityLevel.FSYNC;
+    private int compressionLevel = BlockCompression.NONE;
+    // Change log sequence the loaded data file was saved at; later logged changes are replayed
+    // when the change feed opens (-1 if the file was not saved with a change feed)
+    private long replaySequence = -1;
+    // Change log sequences the data file and its backup were saved at; the log is never
+    // truncated past the backup, which recovery may need to replay from
+    private long savedSequence;
+    private long backupSequence;
+    // When the loaded data file was last written; history for changes it holds that the
+    // change log does not is dated here
+    private long fileTimestamp;
+    private boolean dataFileTorn;
 
     public StudentRepository() {
-        this.filePath = Paths.get(FILE_NAME);
-        this.backupPath = Paths.get(BACKUP_FILE_NAME);
-        this.students = new ArrayList<>();
+        this(Paths.get(FILE_NAME), Paths.get(BACKUP_FILE_NAME));
+    }
+
+    public StudentRepository(Path filePath, Path backupPath) {
+        this.filePath = filePath;
+        this.backupPath = backupPath;
+        this.students = new LinkedHashMap<>();
+        this.history = new StudentHistory();
         loadFromFile();
+        for (Student student : students.values()) {
+            history.recordBaseline(student);
+        }
+        if (dataFileTorn) {
+            saveToFile();
+        }
     }
 
     /**
@@ -26,57 +55,71 @@ public class StudentRepository {
      */
     private void loadFromFile() {
         if (!Files.exists(filePath)) {
-            System.out.println("No existing data file found. Starting with empty database.");
+            System.err.println("No existing data file found. Starting with empty database.");
+            // An empty database is the state before the first logged change
+            replaySequence = 0;
             return;
         }
 
-        try (BufferedReader reader = Files.newBufferedReader(filePath)) {
-            String line;
-            int lineNumber = 0;
-            while ((line = reader.readLine()) != null) {
-                lineNumber++;
-                line = line.trim();
-                if (line.isEmpty() || line.startsWith("#")) {
-                    continue; // Skip empty lines and comments
-                }
+        try {
+            fileTimestamp = Files.getLastModifiedTime(filePath).toMillis();
+            StudentDataFile.Contents contents = StudentDataFile.read(filePath);
+            if (!contents.isIntact()) {
+                contents = recover(contents);
+            }
+            // Keep compressed files compressed when they are saved again
+            if (contents.isCompressed()) {
+                compressionLevel = BlockCompression.DEFAULT_LEVEL;
+            }
+            if (contents.getSequence() > 0) {
+                replaySequence = contents.getSequence();
+            }
+            savedSequence = contents.getSequence();
 
-                try {
-                    Student student = Student.fromFileFormat(line);
-                    students.add(student);
-                } catch (IllegalArgumentException e) {
-                    System.err.println("Error parsing line " + lineNumber + ": " + e.getMessage());
+            for (Student student : contents.getStudents()) {
+                if (students.put(key(student.getId()), student) != null) {
+                    System.err.println("Duplicate ID in data file: " + student.getId());
                 }
             }
-            System.out.println("Loaded " + students.size() + " students from file.");
+            System.err.println("Loaded " + students.size() + " students from file.");
         } catch (IOException e) {
             System.err.println("Error reading file: " + e.getMessage());
         }
     }
 
     /**
-     * Save all students to file with backup
+     * Recover from a torn data file, preferring an intact backup over the records that survived
+     * Changes made after the recovered state are replayed once the change feed is opened
      */
-    public boolean saveToFile() {
-        try {
-            // Create backup if file exists
-            if (Files.exists(filePath)) {
-                Files.copy(filePath, backupPath, StandardCopyOption.REPLACE_EXISTING);
-            }
-
-            // Write to file
-            try (BufferedWriter writer = Files.newBufferedWriter(filePath,
-                    StandardOpenOption.CREATE,
-                    StandardOpenOption.TRUNCATE_EXISTING)) {
-
-                writer.write("# Student Management System Data File\n");
-                writer.write("# Format: ID|Name|Email|PrelimGrade|MidtermGrade|FinalGrade\n");
-                writer.write("# Last updated: " + new Date() + "\n");
+    private StudentDataFile.Contents recover(StudentDataFile.Contents torn) {
+        System.err.println("Data file is incomplete or corrupted (" + torn.getCorruptRecords() + " bad records).");
+        dataFileTorn = true;
 
-                for (Student student : students) {
-                    writer.write(student.toFileFormat());
-                    writer.newLine();
+        if (Files.exists(backupPath)) {
+            try {
+                StudentDataFile.Contents backup = StudentDataFile.read(backupPath);
+                if (backup.isIntact()) {
+                    System.err.println("Recovered " + backup.getStudents().size() + " students from backup.");
+                    replaySequence = backup.getSequence();
+                    return backup;
                 }
+                System.err.println("Backup file is also damaged.");
+            } catch (IOException e) {
+                System.err.println("Error reading backup file: " + e.getMessage());
             }
+        }
+
+        System.err.println("Keeping " + torn.getStudents().size() + " intact records from the data file.");
+        replaySequence = torn.getSequence();
+        return torn;
+    }
+
+    /**
+     * Save all students to file with backup
+     */
+    public synchronized boolean saveToFile() {
+        try {
+            writeFile();
             return true;
         } catch (IOException e) {
             System.err.println("Error saving to file: " + e.getMessage());
@@ -84,42 +127,248 @@ public class StudentRepository {
         }
     }
 
+    private void writeFile() throws IOException {
+        // Create backup if file exists (but never overwrite a good backup with a torn file)
+        if (Files.exists(filePath) && !dataFileTorn) {
+            StudentDataFile.backup(filePath, backupPath, durability);
+            backupSequence = savedSequence;
+        }
+
+        // Without a change feed, keep the sequence the loaded state reflects so a later open still
+        // replays what it is missing (a torn file repaired from the backup must not lose its marker)
+        long sequence = changeFeed == null ? savedSequence : changeFeed.getLastSequence();
+        StudentDataFile.write(filePath, students.values(), sequence, durability, compressionLevel);
+        savedSequence = sequence;
+        dataFileTorn = false;
+    }
+
+    /**
+     * Open the change feed; every later add, update and delete is appended to the log at logPath
+     * before the data file is saved
+     */
+    public synchronized StudentChangeFeed openChangeFeed(Path logPath) throws IOException {
+        if (changeFeed == null) {
+            changeFeed = new StudentChangeFeed(logPath);
+            changeFeed.setDurability(durability);
+            replayMissedChanges();
+            rebuildHistory();
+        }
+        return changeFeed;
+    }
+
+    /**
+     * Rebuild history from the before and after images in the change log, so versions carry the
+     * feed's sequence numbers and timestamps and survive restarts; students the log does not
+     * account for start from a baseline
+     */
+    private void rebuildHistory() throws IOException {
+        history.clear();
+        changeFeed.readFrom(changeFeed.getFirstSequence(), this::recordLoggedChange);
+        history.reconcile(students.values(), fileTimestamp);
+    }
+
+    /**
+     * Re-apply logged changes the data file does not have yet: those made after a recovered
+     * older state was saved, or logged just before a crash stopped the save that followed
+     */
+    private void replayMissedChanges() throws IOException {
+        if (replaySequence < 0) {
+            // Saved without a change feed; the file is taken to hold every logged change
+            savedSequence = changeFeed.getLastSequence();
+            return;
+        }
+
+        if (changeFeed.getLastSequence() < replaySequence) {
+            System.err.println("Change log ends at #" + changeFeed.getLastSequence()
+                    + " but the data file was saved at #" + replaySequence + ".");
+        } else if (changeFeed.getFirstSequence() > replaySequence + 1) {
+            System.err.println("Change log starts at #" + changeFeed.getFirstSequence()
+                    + " but the data file was saved at #" + replaySequence + "; changes in between are missing.");
+        }
+        List<StudentChangeEvent> missed = changeFeed.readFrom(replaySequence + 1);
+        for (StudentChangeEvent event : missed) {
+            applyChange(event);
+        }
+        replaySequence = -1;
+        if (!missed.isEmpty()) {
+            System.err.println("Replayed " + missed.size() + " changes from the change log.");
+            saveToFile();
+        }
+    }
+
+    /**
+     * Number of logged changes the data file does not hold yet, because saving it failed;
+     * they are committed and are replayed when the change feed is next opened
+     */
+    public synchronized long getUnsavedChangeCount() {
+        return changeFeed == null ? 0 : Math.max(0, changeFeed.getLastSequence() - savedSequence);
+    }
+
+    /**
+     * Set how carefully later saves are written to disk
+     */
+    public synchronized void setDurability(DurabilityLevel durability) {
+        if (durability == null) {
+            throw new IllegalArgumentException("Durability level cannot be null");
+        }
+        this.durability = durability;
+        if (changeFeed != null) {
+            changeFeed.setDurability(durability);
+        }
+    }
+
+    public synchronized DurabilityLevel getDurability() {
+        return durability;
+    }
+
+    /**
+     * Set the Deflate level (0-9) for later saves and backups, or BlockCompression.NONE for plain text
+     */
+    public synchronized void setCompression(int compressionLevel) {
+        BlockCompression.checkLevel(compressionLevel);
+        this.compressionLevel = compressionLevel;
+    }
+
+    public synchronized int getCompression() {
+        return compressionLevel;
+    }
+
+    /**
+     * Get the change feed, or null if it has not been opened
+     */
+    public synchronized StudentChangeFeed getChangeFeed() {
+        return changeFeed;
+    }
+
+    /**
+     * Publish a mutation to the change feed if one is open, before it is applied
+     *
+     * @return the logged event, or null if there is no change feed
+     * @throws IOException if the change could not be logged; it must then not be applied,
+     *                     or subscribers and replicas would never see it
+     */
+    private StudentChangeEvent publishChange(StudentChangeEvent.Type type, String id, Student before, Student after)
+            throws IOException {
+        if (changeFeed == null) {
+            return null;
+        }
+
+        try {
+            return changeFeed.append(type, id, before, after);
+        } catch (IOException e) {
+            System.err.println("Error writing change log: " + e.getMessage());
+            throw e;
+        }
+    }
+
+    /**
+     * Save the part of a batch that was logged and applied, then rethrow a log failure that stopped it
+     */
+    private void finishBatch(boolean changed, IOException logFailure) throws IOException {
+        if (changed) {
+            try {
+                writeFile();
+            } catch (IOException e) {
+                System.err.println("Error saving to file: " + e.getMessage());
+                if (logFailure != null) {
+                    e.addSuppressed(logFailure);
+                }
+                throw e;
+            }
+        }
+        if (logFailure != null) {
+            throw logFailure;
+        }
+    }
+
+    /**
+     * Record the versions a local mutation made, under the logged event's sequence and timestamp
+     */
+    private void recordVersions(StudentChangeEvent logged, String id, Student before, Student after) {
+        if (logged != null) {
+            recordChange(logged.getSequence(), logged.getTimestamp(), id, before, after);
+        } else {
+            recordChange(StudentHistory.UNLOGGED, System.currentTimeMillis(), id, before, after);
+        }
+    }
+
+    /**
+     * Record the versions a logged change made, starting from its before image if history has none
+     */
+    private void recordLoggedChange(StudentChangeEvent event) {
+        Student before = event.getBefore();
+        if (before != null && !history.contains(before.getId())) {
+            history.recordBaseline(before);
+        }
+        recordChange(event.getSequence(), event.getTimestamp(), event.getId(), before, event.getAfter());
+    }
+
+    /**
+     * Record the versions one change made; a rename deletes the old ID
+     */
+    private void recordChange(long sequence, long timestamp, String id, Student before, Student after) {
+        if (after == null) {
+            history.record(sequence, id, timestamp, null);
+        } else if (before != null && !key(id).equals(key(after.getId()))) {
+            history.recordRename(sequence, id, timestamp, before, after);
+        } else {
+            history.record(sequence, after.getId(), timestamp, after);
+        }
+    }
+
     /**
      * Add a new student
      */
-    public boolean addStudent(Student student) {
+    public synchronized boolean addStudent(Student student) {
         if (student == null) {
             throw new IllegalArgumentException("Student cannot be null");
         }
 
         // Check for duplicate ID
-        if (findById(student.getId()) != null) {
+        if (students.containsKey(key(student.getId()))) {
             throw new IllegalArgumentException("Student with ID " + student.getId() + " already exists");
         }
 
-        students.add(student);
+        StudentChangeEvent logged;
+        try {
+            logged = publishChange(StudentChangeEvent.Type.ADD, student.getId(), null, student);
+        } catch (IOException e) {
+            return false;
+        }
+        students.put(key(student.getId()), student);
+        recordVersions(logged, student.getId(), null, student);
         return saveToFile();
     }
 
     /**
      * Delete student by ID
      */
-    public boolean deleteStudent(String id) {
+    public synchronized boolean deleteStudent(String id) {
         if (id == null || id.trim().isEmpty()) {
             throw new IllegalArgumentException("Student ID cannot be empty");
         }
 
-        boolean removed = students.removeIf(s -> s.getId().equalsIgnoreCase(id.trim()));
-        if (removed) {
-            saveToFile();
+        Student removed = students.get(key(id));
+        if (removed == null) {
+            return false;
         }
-        return removed;
+
+        StudentChangeEvent logged;
+        try {
+            logged = publishChange(StudentChangeEvent.Type.DELETE, removed.getId(), removed, null);
+        } catch (IOException e) {
+            return false;
+        }
+        students.remove(key(id));
+        recordVersions(logged, removed.getId(), removed, null);
+        saveToFile();
+        return true;
     }
 
     /**
      * Update student information
      */
-    public boolean updateStudent(String id, Student updatedStudent) {
+    public synchronized boolean updateStudent(String id, Student updatedStudent) {
         if (id == null || id.trim().isEmpty()) {
             throw new IllegalArgumentException("Student ID cannot be empty");
         }
@@ -127,39 +376,152 @@ public class StudentRepository {
             throw new IllegalArgumentException("Updated student data cannot be null");
         }
 
-        for (int i = 0; i < students.size(); i++) {
-            if (students.get(i).getId().equalsIgnoreCase(id.trim())) {
-                students.set(i, updatedStudent);
-                return saveToFile();
+        String key = key(id);
+        if (!students.containsKey(key)) {
+            return false;
+        }
+
+        // Renaming onto another student's ID would silently replace that student
+        String newKey = key(updatedStudent.getId());
+        if (!newKey.equals(key) && students.containsKey(newKey)) {
+            throw new IllegalArgumentException("Student with ID " + updatedStudent.getId() + " already exists");
+        }
+
+        Student before = students.get(key);
+        StudentChangeEvent logged;
+        try {
+            logged = publishChange(StudentChangeEvent.Type.UPDATE, before.getId(), before, updatedStudent);
+        } catch (IOException e) {
+            return false;
+        }
+        if (newKey.equals(key)) {
+            students.put(key, updatedStudent);
+        } else {
+            students.remove(key);
+            students.put(newKey, updatedStudent);
+        }
+        recordVersions(logged, before.getId(), before, updatedStudent);
+        return saveToFile();
+    }
+
+    /**
+     * Add several students with a single save, skipping IDs that already exist
+     *
+     * @return number of students added
+     * @throws IOException if a change could not be logged (the batch stops there and the students
+     *                     added before it are saved) or the students could not be saved
+     */
+    public synchronized int addStudents(Collection<Student> batch) throws IOException {
+        if (batch == null) {
+            throw new IllegalArgumentException("Student batch cannot be null");
+        }
+
+        int added = 0;
+        IOException logFailure = null;
+        for (Student student : batch) {
+            if (student == null || students.containsKey(key(student.getId()))) {
+                continue;
+            }
+            StudentChangeEvent logged;
+            try {
+                logged = publishChange(StudentChangeEvent.Type.ADD, student.getId(), null, student);
+            } catch (IOException e) {
+                logFailure = e;
+                break;
             }
+            students.put(key(student.getId()), student);
+            recordVersions(logged, student.getId(), null, student);
+            added++;
+        }
+
+        finishBatch(added > 0, logFailure);
+        return added;
+    }
+
+    /**
+     * Update several existing students (matched by ID) with a single save, skipping unknown IDs
+     *
+     * @return number of students updated
+     * @throws IOException if a change could not be logged (the batch stops there and the students
+     *                     updated before it are saved) or the students could not be saved
+     */
+    public synchronized int updateStudents(Collection<Student> batch) throws IOException {
+        if (batch == null) {
+            throw new IllegalArgumentException("Student batch cannot be null");
+        }
+
+        int updated = 0;
+        IOException logFailure = null;
+        for (Student student : batch) {
+            Student before = student == null ? null : students.get(key(student.getId()));
+            if (before == null) {
+                continue;
+            }
+            StudentChangeEvent logged;
+            try {
+                logged = publishChange(StudentChangeEvent.Type.UPDATE, before.getId(), before, student);
+            } catch (IOException e) {
+                logFailure = e;
+                break;
+            }
+            students.put(key(student.getId()), student);
+            recordVersions(logged, before.getId(), before, student);
+            updated++;
+        }
+
+        finishBatch(updated > 0, logFailure);
+        return updated;
+    }
+
+    /**
+     * Apply a replicated change to memory only (idempotent, no save and no change feed entry)
+     */
+    synchronized void applyChange(StudentChangeEvent event) {
+        String key = key(event.getId());
+        if (event.getAfter() == null) {
+            if (students.remove(key) == null) {
+                return;
+            }
+        } else {
+            students.remove(key);
+            students.put(key(event.getAfter().getId()), event.getAfter());
+        }
+        recordLoggedChange(event);
+    }
+
+    /**
+     * Replace all students in memory with a replicated snapshot (no save)
+     */
+    synchronized void replaceAll(Collection<Student> snapshot) {
+        students.clear();
+        history.clear();
+        for (Student student : snapshot) {
+            students.put(key(student.getId()), student);
+            history.recordBaseline(student);
         }
-        return false;
     }
 
     /**
      * Find student by ID
      */
-    public Student findById(String id) {
+    public synchronized Student findById(String id) {
         if (id == null || id.trim().isEmpty()) {
             return null;
         }
 
-        return students.stream()
-                .filter(s -> s.getId().equalsIgnoreCase(id.trim()))
-                .findFirst()
-                .orElse(null);
+        return students.get(key(id));
     }
 
     /**
      * Search students by name (partial match)
      */
-    public List<Student> searchByName(String name) {
+    public synchronized List<Student> searchByName(String name) {
         if (name == null || name.trim().isEmpty()) {
             return new ArrayList<>();
         }
 
         String searchTerm = name.trim().toLowerCase();
-        return students.stream()
+        return students.values().stream()
                 .filter(s -> s.getName().toLowerCase().contains(searchTerm))
                 .collect(Collectors.toList());
     }
@@ -167,15 +529,15 @@ public class StudentRepository {
     /**
      * Get all students
      */
-    public List<Student> getAllStudents() {
-        return new ArrayList<>(students);
+    public synchronized List<Student> getAllStudents() {
+        return new ArrayList<>(students.values());
     }
 
     /**
      * Sort students by name (A-Z)
      */
-    public List<Student> getSortedByName() {
-        List<Student> sorted = new ArrayList<>(students);
+    public synchronized List<Student> getSortedByName() {
+        List<Student> sorted = new ArrayList<>(students.values());
         Collections.sort(sorted);
         return sorted;
     }
@@ -183,29 +545,92 @@ public class StudentRepository {
     /**
      * Sort students by average grade (highest first)
      */
-    public List<Student> getSortedByGrade() {
-        List<Student> sorted = new ArrayList<>(students);
-        sorted.sort((s1, s2) -> Double.compare(s2.getAverageGrade(), s1.getAverageGrade()));
+    public synchronized List<Student> getSortedByGrade() {
+        List<Student> sorted = new ArrayList<>(students.values());
+        sorted.sort(BY_GRADE_DESC);
         return sorted;
     }
 
+    /**
+     * Get students as they were at the given time (milliseconds since the epoch)
+     * Students loaded from file are the baseline and visible at any time
+     */
+    public synchronized List<Student> asOf(long timestamp) {
+        return history.asOf(timestamp);
+    }
+
+    /**
+     * Get every retained version of a student, oldest first
+     */
+    public synchronized List<StudentVersion> getHistory(String id) {
+        return history.getHistory(id);
+    }
+
+    /**
+     * Get grade changes made within a time window, in the order they happened
+     */
+    public synchronized List<StudentChangeEvent> getGradeChanges(long fromTimestamp, long toTimestamp) {
+        return history.getGradeChanges(fromTimestamp, toTimestamp);
+    }
+
+    /**
+     * Drop history superseded before the horizon, and the change log entries it would be rebuilt
+     * from; reads at or after the horizon are unaffected
+     */
+    public synchronized int compactHistory(long horizonTimestamp) {
+        int removed = history.compact(horizonTimestamp);
+        if (changeFeed != null) {
+            truncateChangeLog(horizonTimestamp);
+        }
+        return removed;
+    }
+
+    /**
+     * Drop change log entries made before the horizon, which history no longer needs, but keep
+     * every entry after the backup so recovery from the backup can still replay them
+     */
+    private void truncateChangeLog(long horizonTimestamp) {
+        try {
+            long[] firstAfter = {changeFeed.getLastSequence() + 1};
+            changeFeed.readFrom(changeFeed.getFirstSequence(), event -> {
+                if (event.getTimestamp() > horizonTimestamp && event.getSequence() < firstAfter[0]) {
+                    firstAfter[0] = event.getSequence();
+                }
+            });
+            changeFeed.truncateBefore(Math.min(firstAfter[0], backupSequence + 1));
+        } catch (IOException e) {
+            System.err.println("Error truncating change log: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Get total number of retained history versions
+     */
+    public synchronized int getHistoryVersionCount() {
+        return history.getVersionCount();
+    }
+
     /**
      * Get total number of students
      */
-    public int getStudentCount() {
+    public synchronized int getStudentCount() {
         return students.size();
     }
 
     /**
      * Calculate average grade across all students
      */
-    public double getAverageGrade() {
+    public synchronized double getAverageGrade() {
         if (students.isEmpty()) {
             return 0.0;
         }
-        return students.stream()
+        return students.values().stream()
                 .mapToDouble(Student::getAverageGrade)
                 .average()
                 .orElse(0.0);
     }
+
+    private static String key(String id) {
+        return id.trim().toLowerCase();
+    }
 }
\ No newline at end of file
@@ -0,0 +1,63 @@
+/**
+ * Student Version Class
+ * One immutable entry in a student's history; a null student marks a deletion
+ * Students are copied in and out, so changing a returned Student never rewrites history
+ */
+public class StudentVersion {
+    private final long sequence;
+    private final long timestamp;
+    private final Student student;
+    private final Student renamedFrom;
+
+    public StudentVersion(long sequence, long timestamp, Student student) {
+        this(sequence, timestamp, student, null);
+    }
+
+    /**
+     * Version made by renaming a student; renamedFrom is the student under its old ID
+     */
+    public StudentVersion(long sequence, long timestamp, Student student, Student renamedFrom) {
+        this.sequence = sequence;
+        this.timestamp = timestamp;
+        this.student = copyOf(student);
+        this.renamedFrom = copyOf(renamedFrom);
+    }
+
+    private static Student copyOf(Student student) {
+        return student == null ? null : new Student(student);
+    }
+
+    // Getters
+    public long getSequence() {
+        return sequence;
+    }
+
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    /**
+     * Student as of this version, or null if the student was deleted
+     */
+    public Student getStudent() {
+        return copyOf(student);
+    }
+
+    /**
+     * Student under its old ID if this version was made by a rename, otherwise null
+     */
+    public Student getRenamedFrom() {
+        return copyOf(renamedFrom);
+    }
+
+    public boolean isDeleted() {
+        return student == null;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("#%d @ %tF %<tT | %s%s", sequence, timestamp,
+                student == null ? "DELETED" : student.toString(),
+                renamedFrom == null ? "" : " (renamed from " + renamedFrom.getId() + ")");
+    }
+}
\ No newline at end of file